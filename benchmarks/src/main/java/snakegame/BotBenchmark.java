@@ -0,0 +1,41 @@
+package snakegame;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one bot decision on a mid-game board: both halves played for a
+ * few hundred ticks by path bots, so the snakes are long and the food is
+ * somewhere awkward. Run with -prof gc to check the searches don't allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BotBenchmark {
+    @Param({"greedy", "path", "survival"})
+    String bot;
+
+    @Param({"300"})
+    int warmTicks;
+
+    private GameEngine match;
+    private SnakeController controller;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        match = new GameEngine(50, 30, 7);
+        match.controllers[0] = new PathBot();
+        match.controllers[1] = new PathBot();
+        while (!match.gameOver && match.ticks < warmTicks) match.tick();
+        controller = SnakeController.byName(bot);
+    }
+
+    @Benchmark
+    public int decide() {
+        return controller.nextDirection(match, 0);
+    }
+}
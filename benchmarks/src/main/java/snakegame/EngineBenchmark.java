@@ -0,0 +1,59 @@
+package snakegame;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-tick and food-spawn cost with both snakes circling their halves.
+ * Snakes grow as they eat, so a long iteration drifts slightly above the
+ * nominal length; each iteration starts over from a fresh engine.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+    private static final int COLS = 256, ROWS = 128;
+
+    @Param({"4", "100", "1000", "10000"})
+    int length;
+
+    private Serpentine left, right;
+    private GameEngine engine;
+    private final int[] inputs = new int[2];
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        left = new Serpentine(0, COLS / 2, COLS, ROWS);
+        right = new Serpentine(COLS / 2, COLS / 2, COLS, ROWS);
+        engine = newEngine(left, right, COLS, ROWS, length);
+    }
+
+    /** An engine whose snakes have been replaced by serpentine-driven ones of the given length. */
+    static GameEngine newEngine(Serpentine left, Serpentine right, int cols, int rows, int length) {
+        GameEngine engine = new GameEngine(cols, rows, 42);
+        engine.grid.clear();
+        engine.snakes[0] = left.newSnake(engine.grid, (short) 1, length);
+        engine.snakes[1] = right.newSnake(engine.grid, (short) 2, length);
+        engine.spawnFood(0);
+        engine.spawnFood(1);
+        return engine;
+    }
+
+    @Benchmark
+    public int tick() {
+        if (engine.gameOver) setup();
+        inputs[0] = left.dir(engine.snake(0));
+        inputs[1] = right.dir(engine.snake(1));
+        return engine.step(inputs);
+    }
+
+    @Benchmark
+    public int spawnFood() {
+        engine.spawnFood(0);
+        return engine.food(0);
+    }
+}
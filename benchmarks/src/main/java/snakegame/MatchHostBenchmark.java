@@ -0,0 +1,50 @@
+package snakegame;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput-mode MatchHost scaling: time to play a fixed batch of
+ * random-walking matches to completion across 1..8 workers. On an N core box
+ * the time should fall near-linearly up to workers = N and flatten after.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchHostBenchmark {
+    private static final int MATCHES = 2000;
+
+    @Param({"1", "2", "4", "8"})
+    int workers;
+
+    private MatchHost host;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        host = new MatchHost(workers, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        host.close();
+    }
+
+    @Benchmark
+    public long playBatch() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(MATCHES);
+        for (int i = 0; i < MATCHES; i++) {
+            Rng rng = new Rng(seed);
+            host.submit(new GameEngine(50, 30, seed++), match -> {
+                for (int p = 0; p < 2; p++) if (rng.nextInt(8) == 0) match.input(p).offer(rng.nextInt(4));
+            }, match -> done.countDown());
+        }
+        done.await();
+        return host.ticks();
+    }
+}
@@ -0,0 +1,70 @@
+package snakegame;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leaderboard queries over a match index of a couple of million matches
+ * (built once per trial in a temp file): top-10, a player's best,
+ * rank-of-score, and the cost of appending one more match. Every append
+ * forces its record to disk, so building the file takes a couple of minutes
+ * and appendMatch mostly times that write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchIndexBenchmark {
+    @Param({"2000000"})
+    int matches;
+
+    private Path file;
+    private MatchIndex index;
+    private Rng rng;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("matches", ".db");
+        Files.delete(file);
+        index = MatchIndex.open(file);
+        rng = new Rng(11);
+        for (int i = 0; i < matches; i++) append();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        index.close();
+        Files.deleteIfExists(file);
+    }
+
+    private long append() throws IOException {
+        return index.append(0, rng.nextInt(1000), rng.nextInt(300), 60_000, rng.nextInt(1000), rng.nextInt(300), 60_000, 0);
+    }
+
+    @Benchmark
+    public List<MatchIndex.Result> top10() {
+        return index.top(10);
+    }
+
+    @Benchmark
+    public MatchIndex.Result best() {
+        return index.best(rng.nextInt(1000));
+    }
+
+    @Benchmark
+    public long rankOf() {
+        return index.rankOf(rng.nextInt(300));
+    }
+
+    @Benchmark
+    public long appendMatch() throws IOException {
+        return append();
+    }
+}
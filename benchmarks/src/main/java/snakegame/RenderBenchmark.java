@@ -0,0 +1,47 @@
+package snakegame;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/** A full paintComponent pass into an offscreen image, under headless AWT. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+    // the panel's board: 1000x600 px in 20 px cells, so each half holds 750 cells
+    private static final int COLS = 50, ROWS = 30;
+
+    @Param({"4", "100", "700"})
+    int length;
+
+    private TwoPlayerSnake panel;
+    private BufferedImage image;
+    private Graphics2D g2;
+
+    @Setup
+    public void setup() {
+        panel = new TwoPlayerSnake(false); // no score log, match index or replays: a benchmark mustn't touch the player's files
+        panel.setSize(COLS * 20, ROWS * 20);
+        panel.attach(EngineBenchmark.newEngine(
+                new Serpentine(0, COLS / 2, COLS, ROWS), new Serpentine(COLS / 2, COLS / 2, COLS, ROWS), COLS, ROWS, length));
+        image = new BufferedImage(COLS * 20, ROWS * 20, BufferedImage.TYPE_INT_RGB);
+        g2 = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        g2.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        panel.paintComponent(g2);
+        return image;
+    }
+}
@@ -0,0 +1,47 @@
+package snakegame;
+
+/**
+ * A Hamiltonian cycle over one rectangular region of the board: right along
+ * even rows, left along odd rows, and back up column 0. A snake steered along
+ * it never collides as long as it is shorter than the region, which lets the
+ * benchmarks hold a snake at a fixed length indefinitely.
+ */
+final class Serpentine {
+    private final int x0, width, height, cols;
+    private final int[] dirs; // direction to take from each board cell in the region
+
+    Serpentine(int x0, int width, int cols, int rows) {
+        if (rows % 2 != 0) throw new IllegalArgumentException("rows must be even: " + rows);
+        this.x0 = x0;
+        this.width = width;
+        this.height = rows;
+        this.cols = cols;
+        this.dirs = new int[cols * rows];
+        for (int y = 0; y < rows; y++) {
+            for (int lx = 0; lx < width; lx++) {
+                int dir;
+                if (lx == 0) dir = y == 0 ? Snake.RIGHT : Snake.UP;
+                else if (y % 2 == 0) dir = lx < width - 1 ? Snake.RIGHT : Snake.DOWN;
+                else if (lx > 1) dir = Snake.LEFT;
+                else dir = y == rows - 1 ? Snake.LEFT : Snake.DOWN;
+                dirs[y * cols + x0 + lx] = dir;
+            }
+        }
+    }
+
+    int dir(Snake s) {
+        return dirs[s.cell(0)];
+    }
+
+    /** A snake on this cycle, already grown to the given length. */
+    Snake newSnake(Grid grid, short id, int length) {
+        if (length >= width * height) throw new IllegalArgumentException("length must leave a free cell: " + length);
+        Snake s = new Snake(x0 + 3, 0, x0, x0 + width, cols, height, 0, grid, id);
+        while (s.length() < length) {
+            s.grow(0);
+            s.setDirection(dir(s));
+            s.move();
+        }
+        return s;
+    }
+}
@@ -0,0 +1,63 @@
+package snakegame;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnakeBenchmark {
+    private static final int COLS = 128, ROWS = 128;
+
+    @Param({"4", "100", "1000", "10000"})
+    int length;
+
+    private Serpentine path;
+    private Snake snake;
+
+    @Setup
+    public void setup() {
+        path = new Serpentine(0, COLS, COLS, ROWS);
+        snake = path.newSnake(new Grid(COLS, ROWS), (short) 1, length);
+    }
+
+    @Benchmark
+    public int move() {
+        snake.setDirection(path.dir(snake));
+        snake.move();
+        return snake.cell(0);
+    }
+
+    /**
+     * Collision is a grid lookup of the new head inside every move, so it is
+     * timed as a move on a board whose other half is packed with a second
+     * snake's body: it should cost what {@link #move} does, however much of
+     * the board is taken.
+     */
+    @Benchmark
+    public boolean collision(Crowded board) {
+        Snake s = board.snake;
+        s.setDirection(board.path.dir(s));
+        s.move();
+        return s.collision();
+    }
+
+    @State(Scope.Thread)
+    public static class Crowded {
+        Serpentine path;
+        Snake snake;
+
+        @Setup
+        public void setup(SnakeBenchmark b) {
+            Grid grid = new Grid(2 * COLS, ROWS);
+            Serpentine other = new Serpentine(COLS, COLS, 2 * COLS, ROWS);
+            other.newSnake(grid, (short) 2, COLS * ROWS - 1);
+            path = new Serpentine(0, COLS, 2 * COLS, ROWS);
+            snake = path.newSnake(grid, (short) 1, b.length);
+        }
+    }
+}
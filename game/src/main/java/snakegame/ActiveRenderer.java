@@ -0,0 +1,119 @@
+package snakegame;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Optional active-rendering mode: a Canvas with a BufferStrategy that a
+ * dedicated thread redraws at a fixed frame rate, instead of waiting for the
+ * Swing timers' repaint() calls to be coalesced on the EDT. Game rules still
+ * run on the EDT; each frame interpolates the snakes from the engine's last
+ * tick using the time elapsed since then.
+ *
+ * <p>Frames are drawn continuously only while a match is in play. Otherwise
+ * the thread sleeps until the panel asks for a repaint, so an idle screen
+ * costs no frames at all.
+ */
+class ActiveRenderer implements Runnable {
+    // below this much time left in a frame we spin instead of parking
+    private static final long SPIN_NANOS = 1_000_000L;
+
+    final Canvas canvas = new Canvas();
+    final FrameStats stats = new FrameStats(4096);
+
+    private final TwoPlayerSnake game;
+    private final int targetFps;
+    private volatile boolean running;
+    private volatile boolean dirty = true;
+    private volatile Thread thread;
+
+    ActiveRenderer(TwoPlayerSnake game, int targetFps) {
+        this.game = game;
+        this.targetFps = targetFps;
+        canvas.setIgnoreRepaint(true);
+        canvas.setFocusable(false);
+    }
+
+    /** Starts the render thread; the canvas must already be showing. */
+    void start() {
+        canvas.createBufferStrategy(2);
+        running = true;
+        thread = new Thread(this, "snake-render");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Asks for at least one more frame. */
+    void wake() {
+        dirty = true;
+        Thread t = thread;
+        if (t != null) LockSupport.unpark(t);
+    }
+
+    void stop() {
+        running = false;
+        if (thread != null) thread.interrupt();
+    }
+
+    /**
+     * Frame period for the target rate, snapped to a whole number of display
+     * refreshes when the refresh rate is known so frames land on vblanks
+     * instead of beating against them.
+     */
+    static long framePeriodNanos(int targetFps, int refreshRate) {
+        if (refreshRate <= 0) return 1_000_000_000L / targetFps;
+        int refreshesPerFrame = Math.max(1, Math.round(refreshRate / (float) targetFps));
+        return 1_000_000_000L * refreshesPerFrame / refreshRate;
+    }
+
+    @Override
+    public void run() {
+        BufferStrategy strategy = canvas.getBufferStrategy();
+        GraphicsConfiguration gc = canvas.getGraphicsConfiguration();
+        int refreshRate = gc != null ? gc.getDevice().getDisplayMode().getRefreshRate() : DisplayMode.REFRESH_RATE_UNKNOWN;
+        // with page flipping show() already waits for vblank, so don't pace on top of it
+        boolean flipping = strategy.getCapabilities().isPageFlipping();
+        long period = framePeriodNanos(targetFps, refreshRate);
+
+        long last = System.nanoTime();
+        long next = last + period;
+        while (running) {
+            if (!dirty && !game.framesRunning()) {
+                game.metrics.framesPaused();
+                LockSupport.park(this);
+                last = System.nanoTime(); // the wait wasn't a frame
+                next = last + period;
+                continue;
+            }
+            dirty = false;
+            do {
+                do {
+                    Graphics2D g2 = (Graphics2D) strategy.getDrawGraphics();
+                    try {
+                        game.renderFrame(g2);
+                    } finally {
+                        g2.dispose();
+                    }
+                } while (strategy.contentsRestored());
+                strategy.show();
+            } while (strategy.contentsLost());
+            Toolkit.getDefaultToolkit().sync();
+
+            long now = System.nanoTime();
+            stats.record(now - last);
+            game.metrics.frame();
+            last = now;
+
+            if (flipping) continue;
+            // fell more than a frame behind: drop the debt rather than bursting to catch up
+            if (now - next > period) next = now;
+            long wait;
+            while ((wait = next - System.nanoTime()) > 0) {
+                if (wait > SPIN_NANOS) LockSupport.parkNanos(wait - SPIN_NANOS);
+                else Thread.onSpinWait();
+            }
+            next += period;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package snakegame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Round-robin bot tournament on the headless engine. Every pairing of the
+ * bots plays the same number of games, alternating sides, and a fork-join
+ * pool splits the game range; each leaf task builds its controllers once and
+ * reuses them for every game it plays. Game i always uses seed + i, so a
+ * tournament's outcomes, and the ratings computed from them in game order,
+ * don't depend on how the pool scheduled it.
+ */
+final class Arena {
+    static final byte DRAW = 0, FIRST_WON = 1, SECOND_WON = 2;
+    static final int DEFAULT_MAX_TICKS = 2000;
+    private static final int LEAF_GAMES = 256;
+    private static final double ELO_K = 16, ELO_START = 1500;
+
+    final String[] bots;
+    final int cols, rows, maxTicks;
+    final long seed;
+    private final int[][] pairings;
+
+    Arena(String[] bots, int cols, int rows, int maxTicks, long seed) {
+        this.bots = bots;
+        this.cols = cols;
+        this.rows = rows;
+        this.maxTicks = maxTicks;
+        this.seed = seed;
+        List<int[]> pairs = new ArrayList<>();
+        for (int a = 0; a < bots.length; a++) {
+            for (int b = a + 1; b < bots.length; b++) pairs.add(new int[] {a, b});
+        }
+        if (pairs.isEmpty()) pairs.add(new int[] {0, 0}); // a lone bot plays itself
+        pairings = pairs.toArray(new int[0][]);
+    }
+
+    /** The two bots of game i, in pairing order (not side order). */
+    int[] pairing(int game) {
+        return pairings[game % pairings.length];
+    }
+
+    /** Plays games 0 .. games-1; outcome[i] says which bot of pairing(i) won. */
+    byte[] play(int games, ForkJoinPool pool) {
+        byte[] outcomes = new byte[games];
+        pool.invoke(new Games(0, games, outcomes));
+        return outcomes;
+    }
+
+    @SuppressWarnings("serial") // a fork-join task, never serialized
+    private final class Games extends RecursiveAction {
+        final int from, to;
+        final byte[] outcomes;
+
+        Games(int from, int to, byte[] outcomes) {
+            this.from = from;
+            this.to = to;
+            this.outcomes = outcomes;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_GAMES) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Games(from, mid, outcomes), new Games(mid, to, outcomes));
+                return;
+            }
+            // one controller per bot per side, since a bot can meet itself
+            SnakeController[][] controllers = new SnakeController[2][bots.length];
+            for (int side = 0; side < 2; side++) {
+                for (int b = 0; b < bots.length; b++) controllers[side][b] = SnakeController.byName(bots[b]);
+            }
+            for (int game = from; game < to; game++) outcomes[game] = playOne(game, controllers);
+        }
+    }
+
+    private byte playOne(int game, SnakeController[][] controllers) {
+        int[] pair = pairing(game);
+        boolean swapped = (game / pairings.length & 1) != 0;
+        GameEngine match = new GameEngine(cols, rows, seed + game);
+        match.controllers[0] = controllers[0][swapped ? pair[1] : pair[0]];
+        match.controllers[1] = controllers[1][swapped ? pair[0] : pair[1]];
+        while (!match.gameOver && match.ticks < maxTicks) match.tick();
+        int winningSide = switch (match.getResult()) {
+            case GameEngine.RESULT_P1, GameEngine.RESULT_P1_TIME -> 0;
+            case GameEngine.RESULT_P2, GameEngine.RESULT_P2_TIME -> 1;
+            default -> -1;
+        };
+        if (winningSide < 0) return DRAW;
+        return (winningSide == 0) != swapped ? FIRST_WON : SECOND_WON;
+    }
+
+    /** Win/draw/loss counts and Elo ratings, replaying the outcomes in game order. */
+    String standings(byte[] outcomes) {
+        int n = bots.length;
+        int[] wins = new int[n], draws = new int[n], losses = new int[n];
+        double[] elo = new double[n];
+        Arrays.fill(elo, ELO_START);
+        for (int game = 0; game < outcomes.length; game++) {
+            int[] pair = pairing(game);
+            int a = pair[0], b = pair[1];
+            double score = switch (outcomes[game]) {
+                case FIRST_WON -> 1;
+                case SECOND_WON -> 0;
+                default -> 0.5;
+            };
+            if (score == 1) { wins[a]++; losses[b]++; }
+            else if (score == 0) { losses[a]++; wins[b]++; }
+            else { draws[a]++; draws[b]++; }
+            if (a == b) continue;
+            double expected = 1 / (1 + Math.pow(10, (elo[b] - elo[a]) / 400));
+            elo[a] += ELO_K * (score - expected);
+            elo[b] -= ELO_K * (score - expected);
+        }
+        StringBuilder sb = new StringBuilder(String.format("%-10s %8s %8s %8s %8s %7s %6s%n",
+                "bot", "games", "wins", "draws", "losses", "win%", "elo"));
+        for (int i = 0; i < n; i++) {
+            int games = wins[i] + draws[i] + losses[i];
+            sb.append(String.format("%-10s %8d %8d %8d %8d %6.1f%% %6.0f%n", bots[i], games, wins[i], draws[i], losses[i],
+                    games == 0 ? 0 : 100.0 * wins[i] / games, elo[i]));
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) {
+        // usage: Arena [games] [bot ...]; bots default to all built-in ones
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        String[] bots = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) : SnakeController.BUILT_IN;
+        Arena arena = new Arena(bots, 50, 30, DEFAULT_MAX_TICKS, 1);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        long start = System.nanoTime();
+        byte[] outcomes = arena.play(games, pool);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.print(arena.standings(outcomes));
+        System.out.printf("%d games in %.1fs (%.0f games/s, parallelism %d)%n", games, seconds, games / seconds, pool.getParallelism());
+    }
+}
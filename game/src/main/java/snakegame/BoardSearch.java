@@ -0,0 +1,181 @@
+package snakegame;
+
+import java.util.Arrays;
+
+/**
+ * Path and flood-fill searches over one snake's area of the board, for bots.
+ * Each cell's mark packs a generation stamp with the first step of the path
+ * that reached it, so starting a search never clears anything; the queues
+ * only grow to the most cells a search has ever seen. One instance serves
+ * every bot on a thread ({@link #forThread()}), so a big board costs one int
+ * per cell per thread, and steady-state searches allocate nothing.
+ *
+ * <p>Path search is A* with the Manhattan distance as heuristic. Every move
+ * costs one, so a step either keeps f (towards the target) or raises it by
+ * two (away from it), and the open set is just two stacks: cells at the
+ * current f and cells at f + 2. On an open board that walks almost straight
+ * to the food instead of flooding the whole half as a BFS would.
+ */
+final class BoardSearch {
+    private static final ThreadLocal<BoardSearch> PER_THREAD = ThreadLocal.withInitial(BoardSearch::new);
+    // generations wrap before they'd spill out of the mark's top 30 bits
+    private static final int MAX_GENERATION = (1 << 30) - 1;
+
+    private int[] queue = new int[64], later = new int[64];
+    private int[] mark = new int[0]; // generation << 2 | first step
+    private int generation;
+
+    /** The calling thread's search; searches don't nest, so bots ticked by one thread can share it. */
+    static BoardSearch forThread() {
+        return PER_THREAD.get();
+    }
+
+    private void begin(int cells) {
+        if (mark.length != cells) {
+            mark = new int[cells];
+            generation = 0;
+        }
+        if (++generation > MAX_GENERATION) {
+            Arrays.fill(mark, 0);
+            generation = 1;
+        }
+    }
+
+    private boolean visited(int cell) {
+        return mark[cell] >>> 2 == generation;
+    }
+
+    private void visit(int cell, int firstDir) {
+        mark[cell] = generation << 2 | firstDir;
+    }
+
+    private static int[] grow(int[] a) {
+        return Arrays.copyOf(a, a.length * 2);
+    }
+
+    /** The cell one step from the head in dir, or -1 if that leaves the snake's area. */
+    static int next(Snake s, int dir) {
+        int x = s.headX() + Snake.DX[dir], y = s.headY() + Snake.DY[dir];
+        return x >= s.leftBound && x < s.rightBound && y >= 0 && y < s.rows ? y * s.cols + x : -1;
+    }
+
+    /** Whether moving in dir this tick is legal and lands on a free cell (or the tail that is leaving). */
+    static boolean safe(Snake s, int dir) {
+        if (s.dx == -Snake.DX[dir] && s.dy == -Snake.DY[dir] && (s.dx | s.dy) != 0) return false;
+        int cell = next(s, dir);
+        if (cell < 0) return false;
+        return s.grid.owner[cell] == Grid.EMPTY || !s.growing && cell == s.cell(s.length() - 1);
+    }
+
+    /** dir as a controller answer: NONE when it is the current heading, so replays stay small. */
+    static int asTurn(Snake s, int dir) {
+        return dir == s.heading() ? Snake.NONE : dir;
+    }
+
+    static int distance(Snake s, int from, int to) {
+        return Math.abs(from % s.cols - to % s.cols) + Math.abs(from / s.cols - to / s.cols);
+    }
+
+    /**
+     * First step of a path from the head to target, or NONE if it can't be
+     * reached. Cells are settled when first seen, so around obstacles the path
+     * can be a little longer than the shortest; across open ground it is exact.
+     */
+    int pathTo(Snake s, int target) {
+        if (target < 0) return Snake.NONE;
+        begin(s.cols * s.rows);
+        int nowSize = 0, nextSize = 0;
+        int headDistance = distance(s, s.cell(0), target);
+        for (int dir = Snake.UP; dir <= Snake.RIGHT; dir++) {
+            if (!safe(s, dir)) continue;
+            int cell = next(s, dir);
+            if (cell == target) return dir;
+            visit(cell, dir);
+            if (distance(s, cell, target) < headDistance) queue[nowSize++] = cell;
+            else later[nextSize++] = cell;
+        }
+        short[] owner = s.grid.owner;
+        while (nowSize > 0 || nextSize > 0) {
+            if (nowSize == 0) {
+                int[] swap = queue;
+                queue = later;
+                later = swap;
+                nowSize = nextSize;
+                nextSize = 0;
+            }
+            int cell = queue[--nowSize];
+            int x = cell % s.cols, y = cell / s.cols;
+            int d = distance(s, cell, target);
+            int firstDir = mark[cell] & 3;
+            for (int dir = Snake.UP; dir <= Snake.RIGHT; dir++) {
+                int nx = x + Snake.DX[dir], ny = y + Snake.DY[dir];
+                if (nx < s.leftBound || nx >= s.rightBound || ny < 0 || ny >= s.rows) continue;
+                int n = ny * s.cols + nx;
+                if (visited(n) || owner[n] != Grid.EMPTY) continue;
+                if (n == target) return firstDir;
+                visit(n, firstDir);
+                if (distance(s, n, target) < d) {
+                    if (nowSize == queue.length) queue = grow(queue);
+                    queue[nowSize++] = n;
+                } else {
+                    if (nextSize == later.length) later = grow(later);
+                    later[nextSize++] = n;
+                }
+            }
+        }
+        return Snake.NONE;
+    }
+
+    /** Free cells reachable from start (counting start), stopping early at limit. */
+    int reachable(Snake s, int start, int limit) {
+        begin(s.cols * s.rows);
+        return fill(s, start, limit);
+    }
+
+    // flood fill within the current generation, so cells counted by an earlier fill are skipped
+    private int fill(Snake s, int start, int limit) {
+        short[] owner = s.grid.owner;
+        int head = 0, tail = 0;
+        visit(start, 0);
+        queue[tail++] = start;
+        while (head < tail && tail < limit) {
+            int cell = queue[head++];
+            int x = cell % s.cols, y = cell / s.cols;
+            for (int dir = Snake.UP; dir <= Snake.RIGHT; dir++) {
+                int nx = x + Snake.DX[dir], ny = y + Snake.DY[dir];
+                if (nx < s.leftBound || nx >= s.rightBound || ny < 0 || ny >= s.rows) continue;
+                int n = ny * s.cols + nx;
+                if (visited(n) || owner[n] != Grid.EMPTY) continue;
+                visit(n, 0);
+                if (tail == queue.length) queue = grow(queue);
+                queue[tail++] = n;
+            }
+        }
+        return Math.min(tail, limit);
+    }
+
+    /**
+     * The safe direction with the most room behind it, breaking ties towards
+     * food; NONE if every move is fatal. Room is only counted up to twice the
+     * snake's length, which is plenty to tell a dead end from open space, and
+     * moves into the same open region share one fill.
+     */
+    int roomiest(Snake s, int food) {
+        begin(s.cols * s.rows);
+        int limit = 2 * s.length() + 8;
+        int best = Snake.NONE, bestRoom = -1, bestDistance = Integer.MAX_VALUE, lastRoom = 0;
+        for (int dir = Snake.UP; dir <= Snake.RIGHT; dir++) {
+            if (!safe(s, dir)) continue;
+            int cell = next(s, dir);
+            // a cell reached by the previous fill is in that region (its room was capped at the limit)
+            int room = visited(cell) ? lastRoom : (lastRoom = fill(s, cell, limit));
+            int d = food < 0 ? 0 : distance(s, cell, food);
+            if (room > bestRoom || room == bestRoom && d < bestDistance) {
+                best = dir;
+                bestRoom = room;
+                bestDistance = d;
+            }
+        }
+        return best;
+    }
+}
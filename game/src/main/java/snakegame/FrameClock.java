@@ -0,0 +1,157 @@
+package snakegame;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The panel's one timer. Every animation is a {@link Task} with its own
+ * period; the clock sleeps until the earliest active task is due, runs every
+ * task that is due by then (or nearly, so tasks on the same beat share a
+ * wakeup) and goes back to sleep. With no task active the timer is stopped,
+ * so a screen on which nothing moves costs no wakeups at all.
+ *
+ * <p>The sleeping is done on System.nanoTime by a parked daemon thread, which
+ * hands each wakeup to the EDT, rather than by a javax.swing.Timer, whose
+ * queue waits in whole milliseconds; a task can also be brought forward to an
+ * exact time ({@link Task#runBy}), so the match ticks when its next move is
+ * due rather than on the next frame after it. Tasks run on the EDT and are
+ * started and stopped from it.
+ */
+final class FrameClock {
+    // tasks due this soon after the one that woke the clock run with it
+    private static final long SLACK_NANOS = 4_000_000L;
+
+    final class Task {
+        final long periodNanos;
+        private final Runnable action;
+        private boolean active;
+        private long due;
+
+        private Task(int periodMillis, Runnable action) {
+            this.periodNanos = periodMillis * 1_000_000L;
+            this.action = action;
+        }
+
+        boolean active() {
+            return active;
+        }
+
+        /** Starts the task, first due a period from now; does nothing if it is already running. */
+        void start() {
+            if (active) return;
+            active = true;
+            due = System.nanoTime() + periodNanos;
+            reschedule();
+        }
+
+        void stop() {
+            if (!active) return;
+            active = false;
+            reschedule();
+        }
+
+        /** Starts or stops the task. */
+        void run(boolean on) {
+            if (on) start();
+            else stop();
+        }
+
+        /** Brings an active task's next run forward to System.nanoTime() atNanos, if that is sooner; its period carries on from there. */
+        void runBy(long atNanos) {
+            if (!active || atNanos - due >= 0) return;
+            due = atNanos;
+            if (!ticking) reschedule();
+        }
+    }
+
+    private final List<Task> tasks = new ArrayList<>();
+    private boolean suspended, ticking;
+    private long wakeups;
+
+    // the waiter parks until wakeAt (Long.MAX_VALUE: until there is something to wait for) and then
+    // posts tick() to the EDT, at most one at a time; tick() reschedules, which unparks it again
+    private volatile long wakeAt = Long.MAX_VALUE;
+    private final AtomicBoolean posted = new AtomicBoolean();
+    private final Runnable tick = this::tick;
+    private Thread waiter;
+
+    Task add(int periodMillis, Runnable action) {
+        Task t = new Task(periodMillis, action);
+        tasks.add(t);
+        return t;
+    }
+
+    /** While suspended (the window is hidden) no task runs; each keeps its active state for when it resumes. */
+    void suspend(boolean suspend) {
+        if (suspend == suspended) return;
+        suspended = suspend;
+        if (!suspend) {
+            long now = System.nanoTime();
+            for (Task t : tasks) if (t.active) t.due = now + t.periodNanos;
+        }
+        reschedule();
+    }
+
+    boolean suspended() {
+        return suspended;
+    }
+
+    /** True while any task is active and the clock isn't suspended. */
+    boolean running() {
+        return wakeAt != Long.MAX_VALUE;
+    }
+
+    /** How many times the clock has woken up, for the metrics overlay. */
+    long wakeups() {
+        return wakeups;
+    }
+
+    private void tick() {
+        posted.set(false);
+        if (suspended) return; // queued just before the clock was suspended
+        wakeups++;
+        long now = System.nanoTime();
+        ticking = true;
+        for (int i = 0; i < tasks.size(); i++) {
+            Task t = tasks.get(i);
+            if (!t.active || t.due - now > SLACK_NANOS) continue;
+            // more than a period behind (a long paint, a modal dialog): skip the missed beats rather than burst
+            t.due = now - t.due > t.periodNanos ? now + t.periodNanos : t.due + t.periodNanos;
+            t.action.run();
+        }
+        ticking = false;
+        reschedule();
+    }
+
+    private void reschedule() {
+        long next = Long.MAX_VALUE;
+        if (!suspended) {
+            for (Task t : tasks) if (t.active && (next == Long.MAX_VALUE || t.due - next < 0)) next = t.due;
+        }
+        wakeAt = next;
+        if (next == Long.MAX_VALUE) return;
+        if (waiter == null) {
+            waiter = new Thread(this::await, "frame-clock");
+            waiter.setDaemon(true);
+            waiter.start();
+        }
+        LockSupport.unpark(waiter);
+    }
+
+    private void await() {
+        while (true) {
+            long at = wakeAt;
+            if (at == Long.MAX_VALUE) {
+                LockSupport.park(this);
+                continue;
+            }
+            long wait = at - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(this, wait);
+            else if (posted.compareAndSet(false, true)) EventQueue.invokeLater(tick);
+            else LockSupport.park(this); // a tick is queued; its reschedule() wakes us
+        }
+    }
+}
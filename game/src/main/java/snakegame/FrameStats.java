@@ -0,0 +1,45 @@
+package snakegame;
+
+import java.util.Arrays;
+
+/**
+ * Rolling window of frame times for percentile reporting. Recording is a
+ * single array store; percentiles sort a preallocated copy, so neither
+ * allocates once constructed.
+ */
+class FrameStats {
+    private final long[] samples;
+    private final long[] sorted;
+    private int next = 0, count = 0;
+    private long max = 0;
+
+    FrameStats(int window) {
+        samples = new long[window];
+        sorted = new long[window];
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+        if (nanos > max) max = nanos;
+    }
+
+    /** Percentile (0..100) of the recorded window, in milliseconds. */
+    synchronized double percentile(double p) {
+        if (count == 0) return 0;
+        System.arraycopy(samples, 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+        int i = (int) Math.ceil(p / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, i))] / 1_000_000.0;
+    }
+
+    synchronized double maxMillis() { return max / 1_000_000.0; }
+
+    synchronized int count() { return count; }
+
+    String summary() {
+        return String.format("frames=%d p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms",
+                count(), percentile(50), percentile(95), percentile(99), maxMillis());
+    }
+}
@@ -0,0 +1,423 @@
+package snakegame;
+
+import java.util.Arrays;
+
+/**
+ * Headless rules for a match: snakes, food, scores and collision.
+ * The engine knows nothing about Swing; it keeps its own simulated clock, so
+ * the same seed and inputs always produce the same match. Every snake moves
+ * at its own pace, a move every {@link #moveDelay} ms, which shortens each
+ * time that snake eats; each {@link #step(int[])} jumps the clock to the
+ * soonest move due and moves every snake due then, all at once: every tail
+ * leaves before any head arrives, and heads that meet on a cell, or land on a
+ * body, kill every snake involved, whatever their order. Live play feeds commands
+ * through one {@link InputQueue} per player, which {@link #tick()} drains one
+ * turn at a time, on that player's moves only.
+ *
+ * <p>Every player has their own food, which lands on a free cell and keeps it
+ * reserved: no other food or snake is ever placed on it. On a partitioned
+ * board each player also has their own column band, and their food only ever
+ * lands in it; on a shared board all snakes roam, and collide on, the whole
+ * board, and a snake that reaches another player's food eats it just as it
+ * would its own, scoring and speeding up, while that player's food moves to a
+ * new cell. A snake that dies leaves the board: nothing draws it any more, so
+ * its cells go back to the free list rather than stay as invisible walls. A
+ * tick touches each snake's head and tail and nothing else, bar the body of a
+ * snake that has just died, so its cost grows with the number of snakes, not
+ * with the board.
+ */
+class GameEngine {
+    static final int EVENT_ATE_1 = 1, EVENT_ATE_2 = 2, EVENT_GAME_OVER = 4, EVENT_ATE_OTHER = 8;
+    static final int RESULT_TIE = 0, RESULT_P1 = 1, RESULT_P2 = 2, RESULT_P1_TIME = 3, RESULT_P2_TIME = 4;
+
+    static final int START_DELAY = 160;
+    // 40 moves a second; moves are timed on the simulated clock, so the pace isn't bound by any timer's granularity
+    static final int MIN_DELAY = 25;
+    // largest board side; the grid and bot searches cost a few bytes per cell
+    static final int MAX_SIDE = 4096;
+    // replays pack the player into the six high bits of a byte
+    static final int MAX_PLAYERS = 64;
+    // narrowest band a partitioned player can start in without touching a neighbour
+    private static final int MIN_BAND_COLS = 10;
+    // cap on catch-up moves per snake per update so a long stall doesn't fast-forward the match
+    private static final int MAX_STEPS_PER_UPDATE = 5;
+
+    final int cols, rows, players;
+    final boolean shared; // one arena for everybody instead of a band per player
+    private final Rng random;
+
+    final Grid grid;
+    final Snake[] snakes;
+    final int[] foods; // packed cells, -1 once a player's area has no free cell left
+
+    final boolean[] running;
+    int alive;
+    boolean gameOver = false;
+    int delay = START_DELAY; // ms from the last tick to the next: until the soonest snake's next move
+    long clock = 0;          // simulated ms since the match started
+    long ticks = 0;
+
+    // each player's pace in ms per move, and the clock time of their next move
+    final int[] moveDelay;
+    final long[] nextMove;
+    // whose move the last tick was; a snake that wasn't due keeps its place and its last move's interpolation
+    final boolean[] moving;
+
+    private long accumulator = 0;
+
+    private final InputQueue[] inputs;
+    // a player with a controller is steered by it; their input queue is ignored
+    final SnakeController[] controllers;
+    private final int[] polled, applied, heads;
+    private final boolean[] reachedFood;
+    // enqueue-to-apply delay of each player's last applied command
+    final long[] inputLatencyNanos;
+
+    // when set, sees every input the engine actually applies (a replay file, a network client)
+    InputRecorder recorder;
+    // when set, times every tick() (the panel's debug overlay and metric dumps)
+    Metrics metrics;
+    // when set, is handed the match after every step, for spectators
+    SpectatorFeed spectators;
+
+    /** The classic match: two players, each on their half of the board. */
+    GameEngine(int cols, int rows, long seed) {
+        this(cols, rows, 2, false, seed);
+    }
+
+    GameEngine(int cols, int rows, int players, boolean shared, long seed) {
+        checkSetup(cols, rows, players, shared);
+        this.cols = cols;
+        this.rows = rows;
+        this.players = players;
+        this.shared = shared;
+        this.random = new Rng(seed);
+        this.grid = new Grid(cols, rows, shared ? 1 : players);
+        this.snakes = new Snake[players];
+        this.foods = new int[players];
+        this.running = new boolean[players];
+        this.inputs = new InputQueue[players];
+        this.controllers = new SnakeController[players];
+        this.polled = new int[players];
+        this.applied = new int[players];
+        this.heads = new int[players];
+        this.reachedFood = new boolean[players];
+        this.inputLatencyNanos = new long[players];
+        this.moveDelay = new int[players];
+        this.nextMove = new long[players];
+        this.moving = new boolean[players];
+        Arrays.fill(moveDelay, START_DELAY);
+        Arrays.fill(nextMove, START_DELAY);
+        if (shared) placeShared();
+        else placePartitioned();
+        for (int p = 0; p < players; p++) {
+            running[p] = true;
+            inputs[p] = new InputQueue();
+        }
+        alive = players;
+        Arrays.fill(foods, -1);
+        for (int p = 0; p < players; p++) spawnFood(p);
+    }
+
+    /** Throws IllegalArgumentException unless a match can be set up like this, without building one. */
+    static void checkSetup(int cols, int rows, int players, boolean shared) {
+        if (cols < 1 || rows < 1 || cols > MAX_SIDE || rows > MAX_SIDE) {
+            throw new IllegalArgumentException("board must be 1.." + MAX_SIDE + " cells a side: " + cols + "x" + rows);
+        }
+        if (players < 2 || players > MAX_PLAYERS) throw new IllegalArgumentException("2.." + MAX_PLAYERS + " players: " + players);
+        if (shared) {
+            int across = across(players), down = (players + across - 1) / across;
+            if (cols / (across + 1) < 5 || rows / (down + 1) < 1) {
+                throw new IllegalArgumentException("a " + cols + "x" + rows + " board is too small for " + players + " snakes");
+            }
+        } else if (cols / players < MIN_BAND_COLS) {
+            throw new IllegalArgumentException("a " + cols + " column board can't be split into " + players + " bands");
+        }
+    }
+
+    private static int across(int players) {
+        return (int) Math.ceil(Math.sqrt(players));
+    }
+
+    // even players start at the left of their band, odd ones at the right, as the two-player halves always have
+    private void placePartitioned() {
+        for (int p = 0; p < players; p++) {
+            int left = grid.regionStart(p), right = grid.regionStart(p + 1);
+            int x = p % 2 == 0 ? left + 4 : right - 5;
+            snakes[p] = new Snake(x, rows / 2, left, right, cols, rows, clock, grid, (short) (p + 1));
+        }
+    }
+
+    // a lattice of start points spread evenly over the board, each snake clear of the next one's tail
+    private void placeShared() {
+        int across = across(players), down = (players + across - 1) / across;
+        for (int p = 0; p < players; p++) {
+            int x = (p % across + 1) * cols / (across + 1), y = (p / across + 1) * rows / (down + 1);
+            snakes[p] = new Snake(x, y, 0, cols, cols, rows, clock, grid, (short) (p + 1));
+        }
+    }
+
+    /** Snapshot copy of the whole match state, for replay seeking; the recorder and controllers are not copied. */
+    GameEngine(GameEngine other) {
+        this.cols = other.cols;
+        this.rows = other.rows;
+        this.players = other.players;
+        this.shared = other.shared;
+        this.random = new Rng(other.random);
+        this.grid = new Grid(other.grid);
+        this.snakes = new Snake[players];
+        for (int p = 0; p < players; p++) snakes[p] = new Snake(other.snakes[p], grid);
+        this.foods = other.foods.clone();
+        this.running = other.running.clone();
+        this.alive = other.alive;
+        this.gameOver = other.gameOver;
+        this.delay = other.delay;
+        this.clock = other.clock;
+        this.ticks = other.ticks;
+        this.moveDelay = other.moveDelay.clone();
+        this.nextMove = other.nextMove.clone();
+        this.moving = other.moving.clone();
+        this.accumulator = other.accumulator;
+        this.inputs = new InputQueue[players];
+        for (int p = 0; p < players; p++) inputs[p] = new InputQueue();
+        this.controllers = new SnakeController[players];
+        this.polled = new int[players];
+        this.applied = new int[players];
+        this.heads = new int[players];
+        this.reachedFood = new boolean[players];
+        this.inputLatencyNanos = new long[players];
+    }
+
+    /**
+     * Rewinds (or fast-forwards) this engine to another's match state in place.
+     * The input queues, recorder and accumulator stay this engine's own, so a
+     * client can roll its predicted match back to the server's and replay.
+     */
+    void restore(GameEngine other) {
+        random.state = other.random.state;
+        grid.copyFrom(other.grid);
+        for (int p = 0; p < players; p++) snakes[p].copyFrom(other.snakes[p]);
+        System.arraycopy(other.foods, 0, foods, 0, players);
+        System.arraycopy(other.running, 0, running, 0, players);
+        alive = other.alive;
+        gameOver = other.gameOver;
+        delay = other.delay;
+        clock = other.clock;
+        ticks = other.ticks;
+        System.arraycopy(other.moveDelay, 0, moveDelay, 0, players);
+        System.arraycopy(other.nextMove, 0, nextMove, 0, players);
+        System.arraycopy(other.moving, 0, moving, 0, players);
+    }
+
+    /** The command queue for a player; safe to offer to from any single thread. */
+    InputQueue input(int player) {
+        return inputs[player];
+    }
+
+    /**
+     * Feeds wall-clock time into the accumulator and runs as many ticks as
+     * are due.
+     *
+     * @return the OR of the events raised by the ticks that ran
+     */
+    int update(long elapsedNanos) {
+        accumulator += elapsedNanos;
+        int events = 0;
+        int steps = 0;
+        while (!gameOver && accumulator >= delay * 1_000_000L) {
+            accumulator -= delay * 1_000_000L;
+            events |= tick();
+            if (++steps == MAX_STEPS_PER_UPDATE * players) {
+                accumulator = Math.min(accumulator, delay * 1_000_000L - 1);
+                break;
+            }
+        }
+        return events;
+    }
+
+    /** Wall-clock time until update() runs the next tick. */
+    long nanosToNextTick() {
+        return Math.max(0, delay * 1_000_000L - accumulator);
+    }
+
+    /**
+     * How far a player is from their last move to their next, 0..1, for
+     * render interpolation, for a renderer that is sinceUpdateNanos past the
+     * last update(). Each snake slides on its own pace, whatever the others do.
+     */
+    float alpha(int player, long sinceUpdateNanos) {
+        int pace = moveDelay[player];
+        double sinceMove = clock - (nextMove[player] - pace) + (accumulator + sinceUpdateNanos) / 1e6;
+        return (float) Math.max(0, Math.min(1, sinceMove / pace));
+    }
+
+    /** Whether the player moves on the next tick. */
+    boolean movesNext(int player) {
+        return running[player] && nextMove[player] == clock + delay;
+    }
+
+    /** Advances one tick, applying at most one queued turn (or controller decision) per player due to move. */
+    int tick() {
+        long start = metrics != null ? metrics.tickStarted(this) : 0;
+        for (int p = 0; p < players; p++) polled[p] = movesNext(p) ? nextTurn(p, snakes[p]) : Snake.NONE;
+        int events = step(polled);
+        if (metrics != null) metrics.tickEnded(start, this, events);
+        return events;
+    }
+
+    Snake snake(int player) {
+        return snakes[player];
+    }
+
+    int food(int player) {
+        return foods[player];
+    }
+
+    /** The event a player eating raises: ATE_1 and ATE_2 for the first two, ATE_OTHER for the rest. */
+    static int ateEvent(int player) {
+        return player == 0 ? EVENT_ATE_1 : player == 1 ? EVENT_ATE_2 : EVENT_ATE_OTHER;
+    }
+
+    // commands that wouldn't change direction are dropped, so they don't cost the player a tick
+    private int nextTurn(int player, Snake s) {
+        if (controllers[player] != null) return controllers[player].nextDirection(this, player);
+        InputQueue queue = inputs[player];
+        int dir;
+        while ((dir = queue.poll()) != Snake.NONE) {
+            if (s.turns(dir)) {
+                inputLatencyNanos[player] = System.nanoTime() - queue.lastStamp();
+                return dir;
+            }
+        }
+        return Snake.NONE;
+    }
+
+    /**
+     * Advances the match by exactly one tick: to the soonest move due, moving
+     * every snake due then. inputs[p] is a Snake direction or NONE, and only
+     * applies if player p moves on this tick.
+     */
+    int step(int[] inputs) {
+        if (gameOver) return 0;
+        ticks++;
+        clock += delay;
+        int events = 0;
+        for (int p = 0; p < players; p++) {
+            moving[p] = running[p] && nextMove[p] == clock;
+            applied[p] = moving[p] ? inputs[p] : Snake.NONE;
+        }
+        if (recorder != null) recorder.record(ticks, applied);
+
+        // every snake due moves before any eats or dies, so no player's result depends on their index
+        for (int p = 0; p < players; p++) if (moving[p]) snakes[p].setDirection(applied[p]);
+        moveTogether();
+        // only a head that kept its cell eats, and only one head can have
+        for (int p = 0; p < players; p++) {
+            if (heads[p] < 0 || !reachedFood[p] || snakes[p].collided) continue;
+            int owner = foodAt(heads[p]);
+            snakes[p].grow(clock);
+            spawnFood(owner);
+            speedUp(p);
+            events |= ateEvent(p);
+        }
+
+        for (int p = 0; p < players; p++) {
+            if (running[p] && snakes[p].collision()) {
+                running[p] = false;
+                alive--;
+                snakes[p].stopTime(clock);
+                snakes[p].leaveGrid();
+            }
+        }
+        if (alive == 0) {
+            gameOver = true;
+            events |= EVENT_GAME_OVER;
+        } else {
+            long next = Long.MAX_VALUE;
+            for (int p = 0; p < players; p++) {
+                if (moving[p]) nextMove[p] = clock + moveDelay[p];
+                if (running[p]) next = Math.min(next, nextMove[p]);
+            }
+            delay = (int) (next - clock);
+        }
+        if (spectators != null) spectators.publish(this);
+        return events;
+    }
+
+    // every due snake's tail leaves before any head claims its cell; a head finding its cell taken dies, and so
+    // does whoever claimed it first this tick, so a head-on meeting kills both sides whatever their index
+    private void moveTogether() {
+        for (int p = 0; p < players; p++) heads[p] = moving[p] ? snakes[p].advance() : -1;
+        for (int p = 0; p < players; p++) {
+            int cell = heads[p];
+            if (cell < 0) continue;
+            int owner = grid.owner[cell] - 1;
+            if (owner < 0) {
+                reachedFood[p] = grid.reserved(cell);
+                grid.occupy(cell, snakes[p].id);
+                continue;
+            }
+            snakes[p].collided = true;
+            heads[p] = -1;
+            if (owner != p && heads[owner] == cell) snakes[owner].collided = true;
+        }
+        // a head that claimed a cell and was then met there gives it back, as a head landing on a body never takes
+        // one; a food there stays, still reserved
+        for (int p = 0; p < players; p++) {
+            if (heads[p] < 0 || !snakes[p].collided) continue;
+            grid.vacate(heads[p]);
+            if (reachedFood[p]) grid.reserve(heads[p]);
+        }
+    }
+
+    // whose food is on the cell; only called once a head has found a reserved cell
+    private int foodAt(int cell) {
+        for (int p = 0; p < players; p++) if (foods[p] == cell) return p;
+        throw new IllegalStateException("no food on reserved cell " + cell);
+    }
+
+    /** Respawns one player's food on a random free cell of their band, or of the whole board if it is shared. */
+    void spawnFood(int player) {
+        if (foods[player] >= 0) grid.release(foods[player]);
+        foods[player] = grid.randomFree(shared ? 0 : player, random);
+        if (foods[player] >= 0) grid.reserve(foods[player]);
+    }
+
+    // a snake that eats speeds itself up, not its opponents
+    private void speedUp(int player) {
+        moveDelay[player] = Math.max(MIN_DELAY, moveDelay[player] - 6);
+    }
+
+    double getPlayTime(Snake s) {
+        return s.getPlayTime(clock);
+    }
+
+    /** Player 1 against player 2: the higher score wins, then the longer play time. */
+    int getResult() {
+        Snake snake1 = snakes[0], snake2 = snakes[1];
+        double t1 = getPlayTime(snake1);
+        double t2 = getPlayTime(snake2);
+        if (snake1.score > snake2.score) return RESULT_P1;
+        if (snake2.score > snake1.score) return RESULT_P2;
+        if (t1 > t2) return RESULT_P1_TIME;
+        if (t2 > t1) return RESULT_P2_TIME;
+        return RESULT_TIE;
+    }
+
+    /** The player with the best score (then the longest play time) of them all, or -1 if two share it. */
+    int winner() {
+        int best = 0;
+        boolean tied = false;
+        for (int p = 1; p < players; p++) {
+            int c = Integer.compare(snakes[p].score, snakes[best].score);
+            if (c == 0) c = Double.compare(getPlayTime(snakes[p]), getPlayTime(snakes[best]));
+            if (c > 0) {
+                best = p;
+                tied = false;
+            } else if (c == 0) {
+                tied = true;
+            }
+        }
+        return tied ? -1 : best;
+    }
+}
@@ -0,0 +1,20 @@
+package snakegame;
+
+/** Heads straight for its food by Manhattan distance, never stepping onto anything deadly. */
+final class GreedyBot implements SnakeController {
+    @Override
+    public int nextDirection(GameEngine match, int player) {
+        Snake s = match.snake(player);
+        int food = match.food(player);
+        int best = Snake.NONE, bestDistance = Integer.MAX_VALUE;
+        for (int dir = Snake.UP; dir <= Snake.RIGHT; dir++) {
+            if (!BoardSearch.safe(s, dir)) continue;
+            int d = food < 0 ? 0 : BoardSearch.distance(s, BoardSearch.next(s, dir), food);
+            if (d < bestDistance) {
+                best = dir;
+                bestDistance = d;
+            }
+        }
+        return best == Snake.NONE ? Snake.NONE : BoardSearch.asTurn(s, best);
+    }
+}
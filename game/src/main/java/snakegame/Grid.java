@@ -0,0 +1,135 @@
+package snakegame;
+
+import java.util.Arrays;
+
+/**
+ * Which snake occupies each board cell, kept up to date by {@link GameEngine#step}
+ * so collision checks never have to walk a body. Cells hold a snake id, or
+ * {@link #EMPTY}; the array is sized to the board, so bigger boards only cost memory.
+ * Cells are indexed y * cols + x, the same packing Snake uses for its body.
+ *
+ * <p>The board is also split into column bands (one per player's area), and
+ * each band keeps its empty cells in a swap-remove array so food can be placed
+ * on a uniformly random free cell in O(1), however crowded the band is. A
+ * cell can also be reserved: still empty, but off the free list, so a food
+ * keeps its cell to itself until a snake eats it.
+ */
+class Grid {
+    static final short EMPTY = 0;
+
+    final int cols, rows;
+    final short[] owner;
+
+    private final int[] regionOfColumn;
+    // free cells of region r are free[r][0 .. freeCount[r]); slot[cell] is a free cell's index there, -1 if reserved
+    private final int[][] free;
+    private final int[] freeCount;
+    private final int[] slot;
+
+    Grid(int cols, int rows) {
+        this(cols, rows, 1);
+    }
+
+    /** A board whose columns are split into the given number of equal bands. */
+    Grid(int cols, int rows, int regions) {
+        this.cols = cols;
+        this.rows = rows;
+        this.owner = new short[cols * rows];
+        this.regionOfColumn = new int[cols];
+        this.free = new int[regions][];
+        this.freeCount = new int[regions];
+        this.slot = new int[cols * rows];
+        for (int r = 0; r < regions; r++) {
+            int start = regionStart(r), end = regionStart(r + 1);
+            for (int x = start; x < end; x++) regionOfColumn[x] = r;
+            free[r] = new int[(end - start) * rows];
+        }
+        clear();
+    }
+
+    /** Snapshot copy; copies the whole board, so unlike a tick it costs time in proportion to its area. */
+    Grid(Grid other) {
+        this.cols = other.cols;
+        this.rows = other.rows;
+        this.owner = other.owner.clone();
+        this.regionOfColumn = other.regionOfColumn;
+        this.free = new int[other.free.length][];
+        for (int r = 0; r < free.length; r++) free[r] = other.free[r].clone();
+        this.freeCount = other.freeCount.clone();
+        this.slot = other.slot.clone();
+    }
+
+    /** Overwrites this board with another of the same size and banding, without allocating. */
+    void copyFrom(Grid other) {
+        System.arraycopy(other.owner, 0, owner, 0, owner.length);
+        for (int r = 0; r < free.length; r++) System.arraycopy(other.free[r], 0, free[r], 0, free[r].length);
+        System.arraycopy(other.freeCount, 0, freeCount, 0, freeCount.length);
+        System.arraycopy(other.slot, 0, slot, 0, slot.length);
+    }
+
+    /** First column of region r; regionStart(regions) is cols. */
+    int regionStart(int r) {
+        return r * cols / free.length;
+    }
+
+    int regionOf(int cell) {
+        return regionOfColumn[cell % cols];
+    }
+
+    /** Empties the board. */
+    void clear() {
+        Arrays.fill(owner, EMPTY);
+        Arrays.fill(freeCount, 0);
+        for (int cell = 0; cell < owner.length; cell++) addFree(cell);
+    }
+
+    void occupy(int cell, short id) {
+        if (owner[cell] == EMPTY && slot[cell] >= 0) removeFree(cell);
+        owner[cell] = id;
+    }
+
+    void vacate(int cell) {
+        if (owner[cell] != EMPTY) addFree(cell);
+        owner[cell] = EMPTY;
+    }
+
+    /** Takes an empty cell off the free list without occupying it; randomFree won't pick it until it is released. */
+    void reserve(int cell) {
+        if (owner[cell] != EMPTY || slot[cell] < 0) return;
+        removeFree(cell);
+        slot[cell] = -1;
+    }
+
+    /** Puts a reserved cell back on the free list, unless a snake has taken it since. */
+    void release(int cell) {
+        if (reserved(cell)) addFree(cell);
+    }
+
+    boolean reserved(int cell) {
+        return owner[cell] == EMPTY && slot[cell] < 0;
+    }
+
+    int freeCount(int region) {
+        return freeCount[region];
+    }
+
+    /** A uniformly random empty cell of the region, or -1 if it is full. */
+    int randomFree(int region, Rng random) {
+        int n = freeCount[region];
+        return n == 0 ? -1 : free[region][random.nextInt(n)];
+    }
+
+    private void addFree(int cell) {
+        int r = regionOf(cell);
+        slot[cell] = freeCount[r];
+        free[r][freeCount[r]++] = cell;
+    }
+
+    private void removeFree(int cell) {
+        int r = regionOf(cell);
+        int i = slot[cell];
+        int last = free[r][--freeCount[r]];
+        free[r][i] = last;
+        slot[last] = i;
+    }
+}
@@ -0,0 +1,69 @@
+package snakegame;
+
+import java.util.Arrays;
+
+/**
+ * Log-linear histogram of non-negative longs, laid out like HdrHistogram:
+ * values below 2^SUB_BITS get a bucket each, and every power of two above
+ * that is split into 2^(SUB_BITS - 1) equal buckets, so any value is counted
+ * to within 1/128 of itself however large it is. Recording is an index
+ * computation and an increment; nothing allocates after construction.
+ */
+final class Histogram {
+    private static final int SUB_BITS = 8;
+    private static final int HALF = 1 << (SUB_BITS - 1);
+
+    private final long[] counts = new long[bucket(Long.MAX_VALUE) + 1];
+    private long total, max;
+
+    private static int bucket(long value) {
+        int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    // the largest value that lands in the bucket, so percentiles never flatter
+    private static long highestIn(int bucket) {
+        int shift = Math.max(0, bucket / HALF - 1);
+        long sub = bucket - shift * HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    synchronized void record(long value) {
+        value = Math.max(0, value);
+        counts[bucket(value)]++;
+        total++;
+        if (value > max) max = value;
+    }
+
+    synchronized long count() {
+        return total;
+    }
+
+    synchronized long max() {
+        return max;
+    }
+
+    /** The value at or below which the given percentage (0..100) of recorded values fall; 0 if empty. */
+    synchronized long percentile(double p) {
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+        long seen = 0;
+        for (int b = 0; b < counts.length; b++) {
+            seen += counts[b];
+            if (seen >= rank) return Math.min(highestIn(b), max);
+        }
+        return max;
+    }
+
+    /** Moves everything recorded so far into into, which is cleared first, and starts over. */
+    synchronized void drainTo(Histogram into) {
+        synchronized (into) {
+            System.arraycopy(counts, 0, into.counts, 0, counts.length);
+            into.total = total;
+            into.max = max;
+        }
+        Arrays.fill(counts, 0);
+        total = 0;
+        max = 0;
+    }
+}
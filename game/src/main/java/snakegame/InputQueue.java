@@ -0,0 +1,56 @@
+package snakegame;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer single-consumer ring of direction commands, each
+ * stamped with System.nanoTime() when offered. The producer can be any one
+ * thread (the EDT, a gamepad poller, a network reader, a bot); the engine is
+ * the consumer and takes at most one command per tick, so quick double presses
+ * are applied on consecutive ticks instead of overwriting each other.
+ */
+final class InputQueue {
+    private static final int CAPACITY = 16; // power of two
+
+    private final int[] dirs = new int[CAPACITY];
+    private final long[] stamps = new long[CAPACITY];
+    private final AtomicLong head = new AtomicLong(); // next slot to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // next slot to write, written by the producer
+    private long lastStamp;
+
+    boolean offer(int dir) {
+        return offer(dir, System.nanoTime());
+    }
+
+    /** Queues a command; false if the queue is full and the command was dropped. */
+    boolean offer(int dir, long stamp) {
+        long t = tail.get();
+        if (t - head.getAcquire() == CAPACITY) return false;
+        int i = (int) t & (CAPACITY - 1);
+        dirs[i] = dir;
+        stamps[i] = stamp;
+        tail.setRelease(t + 1);
+        return true;
+    }
+
+    /** Next command, or Snake.NONE if the queue is empty. */
+    int poll() {
+        long h = head.get();
+        if (h == tail.getAcquire()) return Snake.NONE;
+        int i = (int) h & (CAPACITY - 1);
+        int dir = dirs[i];
+        lastStamp = stamps[i];
+        head.setRelease(h + 1);
+        return dir;
+    }
+
+    /** How many commands poll() has returned so far; consumer side only. */
+    long consumed() {
+        return head.get();
+    }
+
+    /** Timestamp of the command last returned by poll(). */
+    long lastStamp() {
+        return lastStamp;
+    }
+}
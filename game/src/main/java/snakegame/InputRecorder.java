@@ -0,0 +1,7 @@
+package snakegame;
+
+/** Receives the inputs the engine applied on each tick, in tick order. */
+interface InputRecorder {
+    /** inputs[p] is the direction applied for player p on this tick, or Snake.NONE; don't keep the array. */
+    void record(long tick, int[] inputs);
+}
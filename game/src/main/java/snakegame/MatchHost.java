@@ -0,0 +1,247 @@
+package snakegame;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Headless host for many independent matches, with no Swing and no timers.
+ * Matches are sharded across a fixed set of worker threads (one per core by
+ * default). A match stays on the worker it was submitted to for its whole
+ * life, so its engine, its players and their input queues are only ever
+ * touched by that one thread and need no locking.
+ *
+ * <p>In real-time mode every match ticks on its own engine delay. A worker
+ * keeps its shard in a deadline queue, wakes for the earliest deadline and
+ * ticks every match due within {@link #BATCH_SLACK_NANOS} of it in one pass;
+ * how late each tick ran is recorded as tick lag. In throughput mode
+ * (tournaments, simulations) there is no clock: a worker round-robins its
+ * shard {@link #TICK_BATCH} ticks at a time until each match is over.
+ */
+final class MatchHost implements Closeable {
+    /** Supplies commands for a hosted match; called on the match's worker before every tick. */
+    interface Players {
+        void beforeTick(GameEngine match);
+    }
+
+    // matches due this close to the earliest deadline are ticked in the same wake-up
+    static final long BATCH_SLACK_NANOS = 1_000_000;
+    // ticks a match runs per visit in throughput mode, to keep its state hot in cache
+    static final int TICK_BATCH = 64;
+    // a real-time match this many ticks behind drops the backlog, like GameEngine.update
+    private static final int MAX_BEHIND_TICKS = 5;
+
+    private final Worker[] workers;
+    private final boolean realTime;
+    private final AtomicLong nextShard = new AtomicLong();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder ticks = new LongAdder();
+    private final long startNanos = System.nanoTime();
+
+    MatchHost(int workerCount, boolean realTime) {
+        this.realTime = realTime;
+        workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker("match-host-" + i);
+            workers[i].start();
+        }
+    }
+
+    MatchHost(boolean realTime) {
+        this(Runtime.getRuntime().availableProcessors(), realTime);
+    }
+
+    /**
+     * Hosts a match until it is over, then hands it to onFinish on its worker.
+     * Real-time matches get their first tick one engine delay from now.
+     */
+    void submit(GameEngine match, Players players, Consumer<GameEngine> onFinish) {
+        Worker w = workers[(int) (nextShard.getAndIncrement() % workers.length)];
+        w.incoming.add(new Hosted(match, players, onFinish));
+        LockSupport.unpark(w);
+    }
+
+    int workers() {
+        return workers.length;
+    }
+
+    long finishedMatches() {
+        return finished.sum();
+    }
+
+    long ticks() {
+        return ticks.sum();
+    }
+
+    /** Matches currently hosted, including any not yet picked up by their worker. */
+    int activeMatches() {
+        int n = 0;
+        for (Worker w : workers) n += w.active;
+        return n;
+    }
+
+    double matchesPerSecond() {
+        return finished.sum() / ((System.nanoTime() - startNanos) / 1e9);
+    }
+
+    double ticksPerSecond() {
+        return ticks.sum() / ((System.nanoTime() - startNanos) / 1e9);
+    }
+
+    /** Tick lag percentile (0..100) in ms over every worker's recent window; 0 in throughput mode. */
+    double tickLagPercentile(double p) {
+        double worst = 0;
+        for (Worker w : workers) worst = Math.max(worst, w.lag.percentile(p));
+        return worst;
+    }
+
+    String summary() {
+        return String.format("workers=%d active=%d finished=%d matches/s=%.1f ticks/s=%.0f lag p50=%.2fms p99=%.2fms",
+                workers.length, activeMatches(), finishedMatches(), matchesPerSecond(), ticksPerSecond(),
+                tickLagPercentile(50), tickLagPercentile(99));
+    }
+
+    @Override
+    public void close() {
+        for (Worker w : workers) {
+            w.running = false;
+            LockSupport.unpark(w);
+        }
+        for (Worker w : workers) {
+            try {
+                w.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static final class Hosted {
+        final GameEngine match;
+        final Players players;
+        final Consumer<GameEngine> onFinish;
+        long due;
+
+        Hosted(GameEngine match, Players players, Consumer<GameEngine> onFinish) {
+            this.match = match;
+            this.players = players;
+            this.onFinish = onFinish;
+        }
+    }
+
+    private final class Worker extends Thread {
+        final ConcurrentLinkedQueue<Hosted> incoming = new ConcurrentLinkedQueue<>();
+        // real-time shard ordered by deadline; throughput shard in plain submission order
+        final PriorityQueue<Hosted> schedule = new PriorityQueue<>((a, b) -> Long.compare(a.due, b.due));
+        final ArrayList<Hosted> batch = new ArrayList<>();
+        final FrameStats lag = new FrameStats(4096);
+        volatile int active;
+        volatile boolean running = true;
+
+        Worker(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                Hosted h;
+                while ((h = incoming.poll()) != null) {
+                    h.due = System.nanoTime() + h.match.delay * 1_000_000L;
+                    if (realTime) schedule.add(h);
+                    else batch.add(h);
+                }
+                active = realTime ? schedule.size() : batch.size();
+                if (realTime) runDue();
+                else if (!batch.isEmpty()) runBatch();
+                else LockSupport.park(this);
+            }
+        }
+
+        private void runDue() {
+            if (schedule.isEmpty()) {
+                LockSupport.park(this);
+                return;
+            }
+            long now = System.nanoTime();
+            long wait = schedule.peek().due - now;
+            if (wait > BATCH_SLACK_NANOS) {
+                LockSupport.parkNanos(this, wait - BATCH_SLACK_NANOS / 2);
+                return;
+            }
+            long horizon = now + BATCH_SLACK_NANOS;
+            while (!schedule.isEmpty() && schedule.peek().due - horizon <= 0) batch.add(schedule.poll());
+            int ticked = 0;
+            for (Hosted h : batch) {
+                lag.record(Math.max(0, now - h.due));
+                h.players.beforeTick(h.match);
+                h.match.tick();
+                ticked++;
+                if (h.match.gameOver) {
+                    finish(h);
+                    continue;
+                }
+                long step = h.match.delay * 1_000_000L;
+                h.due = now - h.due > MAX_BEHIND_TICKS * step ? now + step : h.due + step;
+                schedule.add(h);
+            }
+            batch.clear();
+            ticks.add(ticked);
+        }
+
+        private void runBatch() {
+            int ticked = 0;
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                Hosted h = batch.get(i);
+                for (int t = 0; t < TICK_BATCH && !h.match.gameOver; t++) {
+                    h.players.beforeTick(h.match);
+                    h.match.tick();
+                    ticked++;
+                }
+                if (h.match.gameOver) {
+                    // swap-remove; the moved match was already visited this pass
+                    batch.set(i, batch.get(batch.size() - 1));
+                    batch.remove(batch.size() - 1);
+                    finish(h);
+                }
+            }
+            ticks.add(ticked);
+        }
+
+        private void finish(Hosted h) {
+            finished.increment();
+            if (h.onFinish != null) h.onFinish.accept(h.match);
+        }
+    }
+
+    /** Plays random-walking matches headless and prints the host's metrics once a second. */
+    public static void main(String[] args) throws InterruptedException {
+        // usage: MatchHost [matches] [workers] [--realtime]
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        boolean realTime = args.length > 2 && args[2].equals("--realtime");
+
+        MatchHost host = new MatchHost(workerCount, realTime);
+        LongAdder[] results = {new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()};
+        for (int i = 0; i < total; i++) {
+            Rng rng = new Rng(i);
+            host.submit(new GameEngine(50, 30, i), match -> {
+                for (int p = 0; p < 2; p++) if (rng.nextInt(8) == 0) match.input(p).offer(rng.nextInt(4));
+            }, match -> results[match.getResult()].increment());
+        }
+        while (host.finishedMatches() < total) {
+            Thread.sleep(1000);
+            System.out.println(host.summary());
+        }
+        System.out.printf("tie=%d p1=%d p2=%d p1-time=%d p2-time=%d%n",
+                results[0].sum(), results[1].sum(), results[2].sum(), results[3].sum(), results[4].sum());
+        host.close();
+    }
+}
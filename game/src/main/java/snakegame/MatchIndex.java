@@ -0,0 +1,245 @@
+package snakegame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Every finished match, in a memory-mapped file of fixed 32 byte records:
+ * <pre>
+ * 0  long  end time, epoch ms      16 int  play time 1, ms
+ * 8  int   score 1                 20 int  play time 2, ms
+ * 12 int   score 2                 24 short player 1, 26 short player 2
+ *                                  28 byte GameEngine result code
+ * </pre>
+ * after a 32 byte header whose record count is written last, once the record
+ * itself has been forced to disk, so a record torn by a crash, of the process
+ * or of the machine, is simply not counted. Records stay in the page cache,
+ * not on the heap; opening scans them once, sequentially, to build three
+ * small in-memory indexes over the 2 * size() per-player results:
+ * <ul>
+ * <li>a Fenwick tree of result counts per score, for rank-of-score in O(log max score);
+ * <li>the best {@link #MAX_TOP} results as a sorted array of packed (score, result) longs,
+ *     for top-K without touching anything else;
+ * <li>each player id's best result, in an array grown to the highest id seen.
+ * </ul>
+ * Together they cost a few kilobytes however many matches there are, plus
+ * 8 bytes per player id up to the highest one. Index keys hold a result
+ * number in 32 bits, so the file takes at most {@link #MAX_MATCHES} matches.
+ */
+final class MatchIndex implements Closeable {
+    static final int MAGIC = 0x534E4B4D; // "SNKM"
+    static final int VERSION = 1;
+    static final int RECORD_SIZE = 32, HEADER_SIZE = 32;
+    static final int MAX_TOP = 1024;
+    // records per mapped segment (2 MB); the file grows a segment at a time
+    private static final int SEGMENT_RECORDS = 1 << 16;
+    private static final int MAX_PLAYERS = 1 << 16; // ids are stored as unsigned shorts
+    // two results per match, each numbered in the low 32 bits of an index key
+    static final long MAX_MATCHES = 1L << 31;
+
+    /** One player's side of an indexed match. */
+    static final class Result {
+        final long match;
+        final int side, player, score, playMillis;
+        final long when;
+
+        Result(long match, int side, int player, int score, int playMillis, long when) {
+            this.match = match;
+            this.side = side;
+            this.player = player;
+            this.score = score;
+            this.playMillis = playMillis;
+            this.when = when;
+        }
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long size;
+
+    private long[] fenwick = new long[257]; // 1-based over score + 1
+    // best results, descending; each is score << 32 | ~result, so equal scores keep the earlier result first
+    private final long[] top = new long[MAX_TOP];
+    private int topSize;
+    private long[] bestOf = new long[16];
+
+    private MatchIndex(FileChannel channel) throws IOException {
+        this.channel = channel;
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        Arrays.fill(bestOf, -1);
+    }
+
+    static MatchIndex open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean fresh = channel.size() < HEADER_SIZE;
+        MatchIndex index = new MatchIndex(channel);
+        try {
+            if (fresh) {
+                index.header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, RECORD_SIZE).putLong(16, 0);
+            } else if (index.header.getInt(0) != MAGIC || index.header.getInt(8) != RECORD_SIZE
+                    || index.header.getLong(16) < 0 || index.header.getLong(16) > MAX_MATCHES) {
+                throw new IOException(file + " is not a match index");
+            }
+            index.load(index.header.getLong(16));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return index;
+    }
+
+    private void load(long count) throws IOException {
+        for (long i = 0; i < count; i++) {
+            MappedByteBuffer seg = segment(i);
+            int at = offset(i);
+            indexResult(i, 0, seg.getShort(at + 24) & 0xFFFF, seg.getInt(at + 8));
+            indexResult(i, 1, seg.getShort(at + 26) & 0xFFFF, seg.getInt(at + 12));
+        }
+        size = count;
+    }
+
+    synchronized long size() {
+        return size;
+    }
+
+    /** Appends a finished match and indexes both sides; returns its match number. */
+    synchronized long append(long when, int player1, int score1, long play1Millis,
+                             int player2, int score2, long play2Millis, int result) throws IOException {
+        long i = size;
+        if (i >= MAX_MATCHES) throw new IOException("match index is full");
+        if (player1 < 0 || player1 >= MAX_PLAYERS || player2 < 0 || player2 >= MAX_PLAYERS) {
+            throw new IllegalArgumentException("player id out of range");
+        }
+        MappedByteBuffer seg = segment(i);
+        int at = offset(i);
+        seg.putLong(at, when);
+        seg.putInt(at + 8, score1);
+        seg.putInt(at + 12, score2);
+        seg.putInt(at + 16, (int) play1Millis);
+        seg.putInt(at + 20, (int) play2Millis);
+        seg.putShort(at + 24, (short) player1);
+        seg.putShort(at + 26, (short) player2);
+        seg.put(at + 28, (byte) result);
+        // on disk before it is counted: the page cache alone doesn't order the two writes across a power cut
+        seg.force(at, RECORD_SIZE);
+        header.putLong(16, i + 1); // the commit point
+        size = i + 1;
+        indexResult(i, 0, player1, score1);
+        indexResult(i, 1, player2, score2);
+        return i;
+    }
+
+    /** The k best results of all time, best first (k is capped at MAX_TOP). */
+    synchronized List<Result> top(int k) {
+        int n = Math.min(k, topSize);
+        List<Result> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(result(~(int) top[i] & 0xFFFFFFFFL));
+        return out;
+    }
+
+    /** The player's best result, or null if they have none. */
+    synchronized Result best(int player) {
+        long key = player >= 0 && player < bestOf.length ? bestOf[player] : -1;
+        return key < 0 ? null : result(~(int) key & 0xFFFFFFFFL);
+    }
+
+    /** 1 + how many results scored strictly more: the rank a new result with this score would take. */
+    synchronized long rankOf(int score) {
+        return 1 + 2 * size - countAtMost(score);
+    }
+
+    /** Both sides of every match, so twice size(). */
+    synchronized long results() {
+        return 2 * size;
+    }
+
+    /** Flushes the record count, and everything else mapped, to disk; appends only force their own record. */
+    synchronized void force() {
+        for (MappedByteBuffer seg : segments) seg.force();
+        header.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private Result result(long r) {
+        long match = r >>> 1;
+        int side = (int) (r & 1);
+        MappedByteBuffer seg = segments.get((int) (match / SEGMENT_RECORDS)); // mapped when appended or loaded
+        int at = offset(match);
+        return new Result(match, side, seg.getShort(at + 24 + 2 * side) & 0xFFFF, seg.getInt(at + 8 + 4 * side),
+                seg.getInt(at + 16 + 4 * side), seg.getLong(at));
+    }
+
+    private void indexResult(long match, int side, int player, int score) {
+        long r = match << 1 | side;
+        long key = (long) score << 32 | (~r & 0xFFFFFFFFL);
+        addCount(Math.max(0, score));
+        if (topSize < MAX_TOP || key > top[topSize - 1]) {
+            int at = topSize < MAX_TOP ? topSize++ : MAX_TOP - 1;
+            while (at > 0 && top[at - 1] < key) {
+                top[at] = top[at - 1];
+                at--;
+            }
+            top[at] = key;
+        }
+        if (player >= bestOf.length) {
+            int old = bestOf.length;
+            bestOf = Arrays.copyOf(bestOf, Integer.highestOneBit(player) * 2);
+            Arrays.fill(bestOf, old, bestOf.length, -1);
+        }
+        if (key > bestOf[player]) bestOf[player] = key;
+    }
+
+    private void addCount(int score) {
+        if (score + 1 >= fenwick.length) {
+            long[] old = fenwick;
+            fenwick = new long[Integer.highestOneBit(score + 1) * 2 + 1];
+            // rebuild from the old tree's per-score counts
+            for (int s = 0; s + 1 < old.length; s++) {
+                long c = prefix(old, s + 1) - prefix(old, s);
+                for (int i = s + 1; i < fenwick.length; i += i & -i) fenwick[i] += c;
+            }
+        }
+        for (int i = score + 1; i < fenwick.length; i += i & -i) fenwick[i]++;
+    }
+
+    private long countAtMost(int score) {
+        if (score < 0) return 0;
+        return prefix(fenwick, Math.min(score + 1, fenwick.length - 1));
+    }
+
+    private static long prefix(long[] tree, int i) {
+        long sum = 0;
+        for (; i > 0; i -= i & -i) sum += tree[i];
+        return sum;
+    }
+
+    private MappedByteBuffer segment(long match) throws IOException {
+        int s = (int) (match / SEGMENT_RECORDS);
+        while (segments.size() <= s) {
+            long start = HEADER_SIZE + (long) segments.size() * SEGMENT_RECORDS * RECORD_SIZE;
+            MappedByteBuffer seg = channel.map(FileChannel.MapMode.READ_WRITE, start, (long) SEGMENT_RECORDS * RECORD_SIZE);
+            seg.order(ByteOrder.LITTLE_ENDIAN);
+            segments.add(seg);
+        }
+        return segments.get(s);
+    }
+
+    private static int offset(long match) {
+        return (int) (match % SEGMENT_RECORDS) * RECORD_SIZE;
+    }
+}
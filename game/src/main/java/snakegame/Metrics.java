@@ -0,0 +1,336 @@
+package snakegame;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Hot-path instrumentation for the panel: simulation time, allocated bytes
+ * and timer drift of every tick, paint durations and frame intervals, each
+ * in a {@link Histogram}. A daemon thread closes a window every few seconds:
+ * it moves the live histograms into the window ones (which the debug overlay
+ * reads), adds the window's GC count and time, commits a JFR summary event
+ * and, if asked to, appends the window to a CSV or JSON-lines file. Ticks and
+ * paints are also JFR events of their own, created only while a recording
+ * has them enabled. So is the time to the first frame, which is also printed
+ * once at startup.
+ *
+ * <p>Recording costs a couple of nanoTime calls and a histogram increment;
+ * the engine's thread also reads its allocation counter around each tick.
+ * Setting up JFR and the management beans takes a good part of a second, so
+ * the window thread does it once the first frame is up; until then nothing
+ * but the histograms is recorded.
+ */
+final class Metrics {
+    static final int TICK = 0, PAINT = 1, FRAME = 2, DRIFT = 3, ALLOC = 4;
+    static final String[] NAMES = {"tick", "paint", "frame", "drift", "alloc"};
+    static final long DEFAULT_WINDOW_MILLIS = 5000;
+
+    @Name("snakegame.Tick")
+    @Label("Tick")
+    @Category("Snake")
+    static final class TickEvent extends Event {
+        @Label("Tick") long tick;
+        @Label("Simulation Time") @Timespan(Timespan.NANOSECONDS) long simulationNanos;
+        @Label("Allocated") @DataAmount long allocatedBytes;
+        @Label("Events") int events;
+    }
+
+    @Name("snakegame.Paint")
+    @Label("Paint")
+    @Category("Snake")
+    static final class PaintEvent extends Event {
+        @Label("Paint Time") @Timespan(Timespan.NANOSECONDS) long paintNanos;
+    }
+
+    @Name("snakegame.MetricsWindow")
+    @Label("Metrics Window")
+    @Category("Snake")
+    static final class WindowEvent extends Event {
+        @Label("Ticks") long ticks;
+        @Label("Tick p99") @Timespan(Timespan.NANOSECONDS) long tickP99;
+        @Label("Paint p99") @Timespan(Timespan.NANOSECONDS) long paintP99;
+        @Label("Frame Interval p99") @Timespan(Timespan.NANOSECONDS) long frameP99;
+        @Label("Drift p99") @Timespan(Timespan.NANOSECONDS) long driftP99;
+        @Label("Allocated per Tick p99") @DataAmount long allocP99;
+        @Label("GC Count") long gcCount;
+        @Label("GC Time") @Timespan(Timespan.MILLISECONDS) long gcMillis;
+    }
+
+    @Name("snakegame.FirstFrame")
+    @Label("First Frame")
+    @Category("Snake")
+    static final class FirstFrameEvent extends Event {
+        @Label("Since JVM Start") @Timespan(Timespan.MILLISECONDS) long sinceJvmStartMillis;
+        @Label("Since main") @Timespan(Timespan.MILLISECONDS) long sinceMainMillis;
+    }
+
+    // null until the window thread has set them up
+    private static volatile EventType tickEvent, paintEvent;
+
+    private final Histogram[] live = new Histogram[NAMES.length], window = new Histogram[NAMES.length];
+    private volatile com.sun.management.ThreadMXBean threads;
+    private List<GarbageCollectorMXBean> collectors; // window thread only
+
+    // engine thread only
+    private long lastTickStart, allocatedBefore;
+    // frame thread only
+    private long lastFrame;
+
+    // written by the window thread, read by the overlay
+    private volatile long windowGcCount, windowGcMillis, windowMillis = DEFAULT_WINDOW_MILLIS;
+    private long gcCountBefore, gcMillisBefore;
+    private volatile long firstFrameMillis, firstFrameSinceMain;
+    private boolean firstFrameReported; // window thread only
+
+    Metrics() {
+        for (int i = 0; i < NAMES.length; i++) {
+            live[i] = new Histogram();
+            window[i] = new Histogram();
+        }
+    }
+
+    /** Call on the ticking thread just before a tick; returns the start time to hand to tickEnded. */
+    long tickStarted(GameEngine match) {
+        long now = System.nanoTime();
+        // how far this tick is from one delay after the last, unless the match was paused or stalled in between
+        long since = now - lastTickStart;
+        long delayNanos = match.delay * 1_000_000L;
+        if (lastTickStart != 0 && since < 4 * delayNanos) live[DRIFT].record(Math.abs(since - delayNanos));
+        lastTickStart = now;
+        var t = threads;
+        allocatedBefore = t != null ? t.getCurrentThreadAllocatedBytes() : -1;
+        return now;
+    }
+
+    void tickEnded(long start, GameEngine match, int events) {
+        long nanos = System.nanoTime() - start;
+        var t = threads;
+        boolean counted = t != null && allocatedBefore >= 0;
+        long allocated = counted ? t.getCurrentThreadAllocatedBytes() - allocatedBefore : 0;
+        live[TICK].record(nanos);
+        if (counted) live[ALLOC].record(allocated);
+        EventType type = tickEvent;
+        if (type != null && type.isEnabled()) {
+            TickEvent e = new TickEvent();
+            e.tick = match.ticks;
+            e.simulationNanos = nanos;
+            e.allocatedBytes = allocated;
+            e.events = events;
+            e.commit();
+        }
+    }
+
+    void painted(long start) {
+        long nanos = System.nanoTime() - start;
+        live[PAINT].record(nanos);
+        EventType type = paintEvent;
+        if (type != null && type.isEnabled()) {
+            PaintEvent e = new PaintEvent();
+            e.paintNanos = nanos;
+            e.commit();
+        }
+    }
+
+    /** Call once per presented frame, from whichever thread paces frames. */
+    void frame() {
+        long now = System.nanoTime();
+        if (lastFrame != 0) live[FRAME].record(now - lastFrame);
+        lastFrame = now;
+    }
+
+    /** Forgets the last frame time, so a pause doesn't show up as one huge frame. */
+    void framesPaused() {
+        lastFrame = 0;
+    }
+
+    /**
+     * Reports how long the first frame took to draw, from JVM start and from
+     * mainNanos (System.nanoTime() on entering main); call once, after it is
+     * drawn. The JFR event follows with the next window.
+     */
+    void firstFrame(long mainNanos) {
+        long now = System.nanoTime();
+        long sinceMain = (now - mainNanos) / 1_000_000;
+        // less however long the runtime bean took to load
+        long sinceStart = ManagementFactory.getRuntimeMXBean().getUptime() - (System.nanoTime() - now) / 1_000_000;
+        firstFrameSinceMain = sinceMain;
+        firstFrameMillis = sinceStart;
+        System.out.println("First frame " + sinceStart + " ms after JVM start (" + sinceMain + " ms after main)");
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /** Milliseconds from JVM start to the first frame, or 0 before it. */
+    long firstFrameMillis() { return firstFrameMillis; }
+
+    /** The last complete window's histogram for a metric; times in ns, allocations in bytes. */
+    Histogram window(int metric) {
+        return window[metric];
+    }
+
+    long windowGcCount() { return windowGcCount; }
+
+    long windowGcMillis() { return windowGcMillis; }
+
+    long windowMillis() { return windowMillis; }
+
+    /**
+     * Starts the daemon that closes a window every windowMillis, appending
+     * each to dumpFile (JSON lines if its name ends in .json, else CSV) unless
+     * that is null. A dump file that can't be written is reported once and
+     * dropped; the overlay keeps working.
+     */
+    void start(long windowMillis, Path dumpFile) {
+        this.windowMillis = windowMillis;
+        Thread t = new Thread(() -> run(dumpFile), "metrics");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void run(Path dumpFile) {
+        // the setup would compete with the first frame for the CPU, so it waits for that (or a window at most)
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() + windowMillis, left;
+            try {
+                while (firstFrameMillis == 0 && (left = deadline - System.currentTimeMillis()) > 0) wait(left);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+        tickEvent = EventType.getEventType(TickEvent.class);
+        paintEvent = EventType.getEventType(PaintEvent.class);
+        var bean = ManagementFactory.getThreadMXBean();
+        threads = bean instanceof com.sun.management.ThreadMXBean t && t.isThreadAllocatedMemorySupported() ? t : null;
+        collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        gcCountBefore = gcCount();
+        gcMillisBefore = gcMillis();
+
+        boolean json = dumpFile != null && dumpFile.toString().endsWith(".json");
+        BufferedWriter out = null;
+        if (dumpFile != null) {
+            try {
+                boolean fresh = !Files.exists(dumpFile) || Files.size(dumpFile) == 0;
+                out = Files.newBufferedWriter(dumpFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                if (fresh && !json) out.write(csvHeader());
+            } catch (IOException e) {
+                System.err.println(dumpFile + ": not dumping metrics: " + e);
+            }
+        }
+        while (true) {
+            try {
+                Thread.sleep(windowMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            closeWindow();
+            if (out == null) continue;
+            try {
+                out.write(json ? jsonLine() : csvLine());
+                out.flush();
+            } catch (IOException e) {
+                System.err.println(dumpFile + ": not dumping metrics: " + e);
+                try {
+                    out.close();
+                } catch (IOException ignored) {}
+                out = null;
+            }
+        }
+    }
+
+    private void closeWindow() {
+        for (int i = 0; i < NAMES.length; i++) live[i].drainTo(window[i]);
+        long count = gcCount(), millis = gcMillis();
+        windowGcCount = count - gcCountBefore;
+        windowGcMillis = millis - gcMillisBefore;
+        gcCountBefore = count;
+        gcMillisBefore = millis;
+
+        WindowEvent e = new WindowEvent();
+        if (e.isEnabled()) {
+            e.ticks = window[TICK].count();
+            e.tickP99 = window[TICK].percentile(99);
+            e.paintP99 = window[PAINT].percentile(99);
+            e.frameP99 = window[FRAME].percentile(99);
+            e.driftP99 = window[DRIFT].percentile(99);
+            e.allocP99 = window[ALLOC].percentile(99);
+            e.gcCount = windowGcCount;
+            e.gcMillis = windowGcMillis;
+            e.commit();
+        }
+        if (firstFrameMillis != 0 && !firstFrameReported) {
+            firstFrameReported = true;
+            FirstFrameEvent f = new FirstFrameEvent();
+            f.sinceJvmStartMillis = firstFrameMillis;
+            f.sinceMainMillis = firstFrameSinceMain;
+            f.commit();
+        }
+    }
+
+    private long gcCount() {
+        long n = 0;
+        for (GarbageCollectorMXBean gc : collectors) n += Math.max(0, gc.getCollectionCount());
+        return n;
+    }
+
+    private long gcMillis() {
+        long n = 0;
+        for (GarbageCollectorMXBean gc : collectors) n += Math.max(0, gc.getCollectionTime());
+        return n;
+    }
+
+    private static String csvHeader() {
+        StringBuilder sb = new StringBuilder("time,window_ms");
+        for (int i = 0; i < NAMES.length; i++) {
+            String unit = i == ALLOC ? "_bytes" : "_ms";
+            sb.append(',').append(NAMES[i]).append("_count");
+            for (String q : new String[] {"p50", "p99", "max"}) sb.append(',').append(NAMES[i]).append('_').append(q).append(unit);
+        }
+        return sb.append(",gc_count,gc_ms\n").toString();
+    }
+
+    private String csvLine() {
+        StringBuilder sb = new StringBuilder().append(Instant.now()).append(',').append(windowMillis);
+        for (int i = 0; i < NAMES.length; i++) {
+            Histogram h = window[i];
+            sb.append(',').append(h.count()).append(',').append(value(i, h.percentile(50)))
+                    .append(',').append(value(i, h.percentile(99))).append(',').append(value(i, h.max()));
+        }
+        return sb.append(',').append(windowGcCount).append(',').append(windowGcMillis).append('\n').toString();
+    }
+
+    private String jsonLine() {
+        StringBuilder sb = new StringBuilder("{\"time\":\"").append(Instant.now()).append("\",\"windowMs\":").append(windowMillis);
+        for (int i = 0; i < NAMES.length; i++) {
+            Histogram h = window[i];
+            String unit = i == ALLOC ? "Bytes" : "Ms";
+            sb.append(",\"").append(NAMES[i]).append("\":{\"count\":").append(h.count())
+                    .append(",\"p50").append(unit).append("\":").append(value(i, h.percentile(50)))
+                    .append(",\"p99").append(unit).append("\":").append(value(i, h.percentile(99)))
+                    .append(",\"max").append(unit).append("\":").append(value(i, h.max())).append('}');
+        }
+        return sb.append(",\"gc\":{\"count\":").append(windowGcCount).append(",\"ms\":").append(windowGcMillis).append("}}\n").toString();
+    }
+
+    // times go out in ms with microsecond resolution, allocations in whole bytes
+    private static String value(int metric, long v) {
+        return metric == ALLOC ? Long.toString(v) : String.format(Locale.ROOT, "%.3f", v / 1e6);
+    }
+}
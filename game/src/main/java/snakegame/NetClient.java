@@ -0,0 +1,254 @@
+package snakegame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Client end of a {@link SnakeServer} match, polled from the thread that
+ * owns the game (the EDT); the socket is non-blocking, so nothing here waits.
+ *
+ * <p>Two engines are kept from the same seed. {@code confirmed} only ever
+ * advances by the server's TICK deltas and is checked against them.
+ * {@code predicted} is what the player sees: it ticks locally at full speed,
+ * applying the local player's commands immediately and assuming the opponent
+ * keeps going straight. Every command the predicted engine applies is sent to
+ * the server and kept until the server acknowledges it; whenever new ticks
+ * arrive, the prediction is rolled back to {@code confirmed} and the
+ * unacknowledged commands are replayed on top, so a wrong guess lasts at most
+ * one round trip.
+ */
+final class NetClient implements InputRecorder, Closeable {
+    private static final int MAX_PENDING = 64;
+
+    private final InetSocketAddress address;
+    private SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocate(4 * (NetProtocol.MAX_FRAME + 1));
+    private final ByteBuffer out = ByteBuffer.allocate(4096);
+    private final ByteBuffer frame = ByteBuffer.allocate(NetProtocol.MAX_FRAME + 1);
+
+    int player = -1;
+    int countdownMillis;
+    GameEngine confirmed, predicted;
+    boolean over;
+    int endReason;
+    String error;
+
+    // local commands not yet acknowledged: sequence numbers sent - pendingCount + 1 .. sent,
+    // with the predicted tick each was applied on
+    private final long[] pendingTicks = new long[MAX_PENDING];
+    private final int[] pendingDirs = new int[MAX_PENDING];
+    private int pendingCount;
+    private long sent;
+
+    private final int[] inputs = new int[2];
+    private boolean ticked;
+
+    NetClient(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    /**
+     * Starts connecting if needed and queues a request for the next match.
+     * The connect finishes in {@link #poll}, so the event thread never waits on it.
+     */
+    void join() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.connect(address);
+            in.clear();
+            out.clear();
+        }
+        player = -1;
+        confirmed = predicted = null;
+        over = false;
+        error = null;
+        sent = 0;
+        pendingCount = 0;
+        send(NetProtocol.end(NetProtocol.begin(frame, NetProtocol.HELLO).put((byte) NetProtocol.VERSION)));
+        flush();
+    }
+
+    boolean started() {
+        return predicted != null;
+    }
+
+    /**
+     * Reads everything the server has sent and reconciles the prediction.
+     *
+     * @return whether the predicted board changed by more than the usual tick,
+     *         so the caller should repaint all of it
+     */
+    boolean poll() {
+        if (error != null || channel == null) return false;
+        ticked = false;
+        try {
+            if (!connected()) return false;
+        } catch (IOException e) {
+            fail("Could not reach the server: " + e.getMessage());
+            return false;
+        }
+        try {
+            flush();
+            int n;
+            while ((n = channel.read(in)) > 0) {
+                in.flip();
+                NetProtocol.drain(in, this::onFrame);
+            }
+            if (n < 0) fail("The server closed the connection.");
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            fail("Lost the server: " + e.getMessage());
+        }
+        return error == null && ticked && reconcile();
+    }
+
+    private void onFrame(ByteBuffer f) {
+        switch (f.get()) {
+            case NetProtocol.START -> {
+                player = f.get();
+                int cols = (int) Varint.read(f), rows = (int) Varint.read(f);
+                long seed = f.getLong();
+                countdownMillis = (int) Varint.read(f);
+                confirmed = new GameEngine(cols, rows, seed);
+                predicted = new GameEngine(cols, rows, seed);
+                predicted.recorder = this;
+            }
+            case NetProtocol.TICK -> {
+                if (confirmed == null) throw new IllegalArgumentException("tick before start");
+                applyTick(f);
+                ticked = true;
+            }
+            case NetProtocol.END -> {
+                over = true;
+                endReason = f.get();
+            }
+            default -> throw new IllegalArgumentException("unexpected message");
+        }
+    }
+
+    private void applyTick(ByteBuffer f) {
+        long tick = Varint.read(f);
+        long ack = 0;
+        for (int p = 0; p < 2; p++) {
+            long a = Varint.read(f);
+            if (p == player) ack = a;
+        }
+        int state1 = f.get(), state2 = f.get(), mask = f.get();
+        int food1 = (mask & 1) != 0 ? (int) Varint.read(f) - 1 : confirmed.food(0);
+        int food2 = (mask & 2) != 0 ? (int) Varint.read(f) - 1 : confirmed.food(1);
+        if (tick != confirmed.ticks + 1) throw new IllegalArgumentException("tick " + tick + " out of sequence");
+
+        inputs[0] = NetProtocol.inputOf(state1);
+        inputs[1] = NetProtocol.inputOf(state2);
+        int events = confirmed.step(inputs);
+        if (food1 != confirmed.food(0) || food2 != confirmed.food(1)
+                || state1 != NetProtocol.snakeState(confirmed.snake(0), confirmed.running[0], (events & GameEngine.EVENT_ATE_1) != 0)
+                || state2 != NetProtocol.snakeState(confirmed.snake(1), confirmed.running[1], (events & GameEngine.EVENT_ATE_2) != 0)) {
+            throw new IllegalArgumentException("out of sync with the server at tick " + tick);
+        }
+
+        int acked = (int) Math.max(0, Math.min(pendingCount, ack - (sent - pendingCount)));
+        if (acked > 0) {
+            pendingCount -= acked;
+            System.arraycopy(pendingTicks, acked, pendingTicks, 0, pendingCount);
+            System.arraycopy(pendingDirs, acked, pendingDirs, 0, pendingCount);
+        }
+    }
+
+    /** Rolls the prediction back to the server's state and replays the unacknowledged commands. */
+    private boolean reconcile() {
+        long target = predicted.ticks;
+        if (confirmed.ticks >= target) {
+            // running behind the server: catching up by one tick is just the next tick arriving early
+            long behind = confirmed.ticks - target;
+            long before = fingerprint(predicted);
+            predicted.restore(confirmed);
+            return behind > 1 || behind == 0 && fingerprint(predicted) != before;
+        }
+        long before = fingerprint(predicted);
+        predicted.recorder = null;
+        predicted.restore(confirmed);
+        int next = 0;
+        while (predicted.ticks < target && !predicted.gameOver) {
+            inputs[0] = inputs[1] = Snake.NONE;
+            // a command waits for the local snake's next move, as it did when it was first applied
+            if (next < pendingCount && pendingTicks[next] <= predicted.ticks + 1 && predicted.movesNext(player)) {
+                inputs[player] = pendingDirs[next++];
+            }
+            predicted.step(inputs);
+        }
+        predicted.recorder = this;
+        return fingerprint(predicted) != before;
+    }
+
+    private static long fingerprint(GameEngine e) {
+        long h = 0;
+        for (int p = 0; p < e.players; p++) {
+            Snake s = e.snake(p);
+            h = h * 31 + e.food(p);
+            h = h * 31 + s.cell(0);
+            h = h * 31 + s.cell(s.length() - 1);
+            h = h * 31 + s.length();
+            h = h * 2 + (e.running[p] ? 1 : 0);
+        }
+        return h;
+    }
+
+    /** Sends each command the predicted engine applies for the local player. */
+    @Override
+    public void record(long tick, int[] applied) {
+        int dir = applied[player];
+        if (dir == Snake.NONE || error != null) return;
+        if (pendingCount == MAX_PENDING) {
+            // the server has stopped acknowledging; predict without the oldest command
+            pendingCount--;
+            System.arraycopy(pendingTicks, 1, pendingTicks, 0, pendingCount);
+            System.arraycopy(pendingDirs, 1, pendingDirs, 0, pendingCount);
+        }
+        pendingTicks[pendingCount] = tick;
+        pendingDirs[pendingCount++] = dir;
+        sent++;
+        try {
+            send(NetProtocol.end(NetProtocol.begin(frame, NetProtocol.INPUT).put((byte) dir)));
+            flush();
+        } catch (IOException e) {
+            fail("Lost the server: " + e.getMessage());
+        }
+    }
+
+    private void send(ByteBuffer message) throws IOException {
+        if (out.remaining() < message.remaining()) throw new IOException("send buffer full");
+        out.put(message);
+    }
+
+    /** Whether the connect has finished; never blocks. */
+    private boolean connected() throws IOException {
+        return channel.isConnected() || channel.finishConnect();
+    }
+
+    /** Writes what the socket takes now; anything queued before the connect finishes waits for it. */
+    private void flush() throws IOException {
+        if (!connected()) return;
+        out.flip();
+        channel.write(out);
+        out.compact();
+    }
+
+    private void fail(String message) {
+        error = message;
+        close();
+    }
+
+    @Override
+    public void close() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+    }
+}
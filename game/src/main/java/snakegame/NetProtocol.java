@@ -0,0 +1,84 @@
+package snakegame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format shared by {@link SnakeServer} and {@link NetClient}. Every
+ * message is one frame: a length byte, a type byte and a payload of varints
+ * and bytes, so a typical tick fits in about ten bytes.
+ *
+ * <pre>
+ * HELLO  c->s  version
+ * START  s->c  player, cols, rows, seed (8 bytes), countdown ms
+ * INPUT  c->s  direction (the client's sequence number is implied by order)
+ * TICK   s->c  tick, ack1, ack2, snake1 state, snake2 state, food mask, [food1 + 1], [food2 + 1]
+ * END    s->c  reason
+ * </pre>
+ *
+ * A tick carries only what changed: each snake's heading, whether it ate and
+ * whether it is still alive, plus a food cell only when that food respawned.
+ * The engine is deterministic, so that is enough for a client holding the same
+ * seed to rebuild the whole board, and to notice if it ever disagrees.
+ */
+final class NetProtocol {
+    static final int VERSION = 1;
+    static final int DEFAULT_PORT = 4477;
+    static final int COUNTDOWN_MILLIS = 3000;
+
+    static final int HELLO = 1, START = 2, INPUT = 3, TICK = 4, END = 5;
+    static final int END_FINISHED = 0, END_OPPONENT_LEFT = 1;
+
+    static final int MAX_FRAME = 255;
+
+    // snake state byte in a TICK
+    static final int HEADING_MASK = 0x3, HAS_HEADING = 0x4, ATE = 0x8, ALIVE = 0x10;
+
+    private NetProtocol() {}
+
+    /** Clears buf and starts a frame of the given type; finish it with {@link #end}. */
+    static ByteBuffer begin(ByteBuffer buf, int type) {
+        buf.clear();
+        buf.put((byte) 0); // length, patched by end()
+        buf.put((byte) type);
+        return buf;
+    }
+
+    /** Patches the frame length and flips buf for writing out. */
+    static ByteBuffer end(ByteBuffer buf) {
+        buf.put(0, (byte) (buf.position() - 1));
+        return buf.flip();
+    }
+
+    static int snakeState(Snake s, boolean running, boolean ate) {
+        int dir = s.heading();
+        int state = dir == Snake.NONE ? 0 : HAS_HEADING | dir;
+        if (ate) state |= ATE;
+        if (running) state |= ALIVE;
+        return state;
+    }
+
+    /** The input that reproduces a TICK's snake state on a client engine. */
+    static int inputOf(int state) {
+        return (state & HAS_HEADING) != 0 ? state & HEADING_MASK : Snake.NONE;
+    }
+
+    /**
+     * Hands each complete frame in in (flipped for reading) to handler as a
+     * buffer positioned at its type byte, then compacts in for the next read.
+     */
+    static void drain(ByteBuffer in, FrameHandler handler) {
+        while (in.remaining() > 0) {
+            int length = in.get(in.position()) & 0xFF;
+            if (in.remaining() < 1 + length) break;
+            int end = in.position() + 1 + length;
+            ByteBuffer frame = in.slice(in.position() + 1, length);
+            in.position(end);
+            if (length > 0) handler.frame(frame);
+        }
+        in.compact();
+    }
+
+    interface FrameHandler {
+        void frame(ByteBuffer frame);
+    }
+}
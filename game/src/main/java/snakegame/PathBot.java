@@ -0,0 +1,20 @@
+package snakegame;
+
+/**
+ * Follows a shortest path to its food, unless the first step would leave it
+ * less room than its own length; then, and when there is no path, it plays
+ * like {@link SurvivalBot}.
+ */
+final class PathBot implements SnakeController {
+    @Override
+    public int nextDirection(GameEngine match, int player) {
+        Snake s = match.snake(player);
+        BoardSearch search = BoardSearch.forThread();
+        int food = match.food(player);
+        int dir = search.pathTo(s, food);
+        if (dir == Snake.NONE || search.reachable(s, BoardSearch.next(s, dir), s.length()) < s.length()) {
+            dir = search.roomiest(s, food);
+        }
+        return dir == Snake.NONE ? Snake.NONE : BoardSearch.asTurn(s, dir);
+    }
+}
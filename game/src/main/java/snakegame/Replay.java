@@ -0,0 +1,65 @@
+package snakegame;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/** A decoded replay file: the engine setup plus every recorded input, in tick order. */
+final class Replay {
+    final int cols, rows, players;
+    final boolean shared;
+    final long seed;
+    // entry i applies direction (inputs[i] & 3) for player ((inputs[i] & 0xFF) >> 2) on tick ticks[i]
+    long[] ticks = new long[64];
+    byte[] inputs = new byte[64];
+    int size = 0;
+
+    private Replay(int cols, int rows, int players, boolean shared, long seed) {
+        this.cols = cols;
+        this.rows = rows;
+        this.players = players;
+        this.shared = shared;
+        this.seed = seed;
+    }
+
+    /** Reads a replay; a torn last entry from a crash mid-write is dropped. */
+    static Replay read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != ReplayWriter.MAGIC) throw new IOException("not a replay file: " + file);
+            int version = in.readUnsignedByte();
+            if (version != ReplayWriter.VERSION) throw new IOException("unsupported replay version " + version + ": " + file);
+            int cols = (int) Varint.read(in), rows = (int) Varint.read(in);
+            int players = (int) Varint.read(in);
+            boolean shared = in.readBoolean();
+            Replay replay = new Replay(cols, rows, players, shared, in.readLong());
+            long tick = 0;
+            while (true) {
+                int code;
+                try {
+                    tick += Varint.read(in);
+                    code = in.readUnsignedByte();
+                } catch (EOFException end) {
+                    break;
+                }
+                replay.add(tick, (byte) code);
+            }
+            return replay;
+        }
+    }
+
+    private void add(long tick, byte code) {
+        if (size == ticks.length) {
+            ticks = Arrays.copyOf(ticks, size * 2);
+            inputs = Arrays.copyOf(inputs, size * 2);
+        }
+        ticks[size] = tick;
+        inputs[size] = code;
+        size++;
+    }
+
+    /** A fresh engine for the replay. */
+    GameEngine newEngine() {
+        return new GameEngine(cols, rows, players, shared, seed);
+    }
+}
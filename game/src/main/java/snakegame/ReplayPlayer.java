@@ -0,0 +1,116 @@
+package snakegame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Re-simulates a replay as fast as the engine can step, with no timers
+ * involved. A snapshot of the engine is kept every SNAPSHOT_INTERVAL ticks,
+ * so seeking backwards restores the nearest one and replays only the rest.
+ */
+class ReplayPlayer {
+    static final int SNAPSHOT_INTERVAL = 1024;
+
+    private final Replay replay;
+    private final List<GameEngine> snapshots = new ArrayList<>();
+    private final int[] inputs;
+    private GameEngine engine;
+    private int cursor = 0; // next replay entry to apply
+
+    ReplayPlayer(Replay replay) {
+        this.replay = replay;
+        this.engine = replay.newEngine();
+        this.inputs = new int[engine.players];
+        snapshots.add(new GameEngine(engine));
+    }
+
+    GameEngine engine() {
+        return engine;
+    }
+
+    /** Plays one tick; false once the match is over. */
+    boolean step() {
+        if (engine.gameOver) return false;
+        long tick = engine.ticks + 1;
+        Arrays.fill(inputs, Snake.NONE);
+        while (cursor < replay.size && replay.ticks[cursor] == tick) {
+            int code = replay.inputs[cursor++] & 0xFF; // players 32 and up set the byte's sign bit
+            inputs[code >> 2] = code & 3;
+        }
+        engine.step(inputs);
+        if (engine.ticks % SNAPSHOT_INTERVAL == 0 && engine.ticks / SNAPSHOT_INTERVAL == snapshots.size()) {
+            snapshots.add(new GameEngine(engine));
+        }
+        return true;
+    }
+
+    /** Moves to the given tick (or the end of the match, if sooner). */
+    void seek(long tick) {
+        int k = (int) Math.min(tick / SNAPSHOT_INTERVAL, snapshots.size() - 1);
+        GameEngine snapshot = snapshots.get(k);
+        // going backwards, or a snapshot is nearer than where we are
+        if (tick < engine.ticks || snapshot.ticks > engine.ticks) {
+            engine = new GameEngine(snapshot);
+            cursor = firstEntryAfter(snapshot.ticks);
+        }
+        while (engine.ticks < tick && step()) {
+            // replaying
+        }
+    }
+
+    void runToEnd() {
+        while (step()) {
+            // replaying
+        }
+    }
+
+    private int firstEntryAfter(long tick) {
+        int lo = 0, hi = replay.size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (replay.ticks[mid] <= tick) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Replays every file (or every .snr file in a directory) to the end and
+     * prints the outcome, e.g. to check a rule change against a replay corpus.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: ReplayPlayer <replay file or directory>...");
+            System.exit(2);
+        }
+        long totalTicks = 0;
+        long start = System.nanoTime();
+        for (String arg : args) {
+            Path path = Paths.get(arg);
+            List<Path> files = new ArrayList<>();
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> list = Files.list(path)) {
+                    list.filter(p -> p.toString().endsWith(".snr")).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+            for (Path file : files) {
+                ReplayPlayer player = new ReplayPlayer(Replay.read(file));
+                player.runToEnd();
+                GameEngine e = player.engine();
+                totalTicks += e.ticks;
+                System.out.println(file + ": ticks=" + e.ticks + " p1=" + e.snake(0).score + " p2=" + e.snake(1).score
+                        + (e.players > 2 ? " players=" + e.players + " winner=" + e.winner() : "") + " result=" + e.getResult() + (e.gameOver ? "" : " (unfinished)"));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d ticks in %.2fs (%.0f ticks/s)%n", totalTicks, seconds, totalTicks / Math.max(seconds, 1e-9));
+    }
+}
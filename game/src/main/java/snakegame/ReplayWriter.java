@@ -0,0 +1,53 @@
+package snakegame;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Append-only replay file. A header holds the match setup (board size,
+ * players, shared or banded board) and seed; after it
+ * comes one entry per input the engine applied: the varint tick delta since
+ * the previous entry and one byte packing player and direction. Ticks without
+ * input cost nothing, so a whole match is usually a few hundred bytes.
+ */
+class ReplayWriter implements Closeable, InputRecorder {
+    static final int MAGIC = 0x534E4B52; // "SNKR"
+    static final int VERSION = 1;
+
+    private final DataOutputStream out;
+    private long lastTick = 0;
+    private boolean failed = false;
+
+    ReplayWriter(Path file, GameEngine match, long seed) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        Varint.write(out, match.cols);
+        Varint.write(out, match.rows);
+        Varint.write(out, match.players);
+        out.writeBoolean(match.shared);
+        out.writeLong(seed);
+    }
+
+    /** Called by the engine for every tick; a write error just stops the recording. */
+    @Override
+    public void record(long tick, int[] inputs) {
+        if (failed) return;
+        try {
+            for (int p = 0; p < inputs.length; p++) {
+                if (inputs[p] == Snake.NONE) continue;
+                Varint.write(out, tick - lastTick);
+                out.writeByte(p << 2 | inputs[p]);
+                lastTick = tick;
+            }
+        } catch (IOException e) {
+            failed = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
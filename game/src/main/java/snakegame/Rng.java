@@ -0,0 +1,29 @@
+package snakegame;
+
+/**
+ * SplitMix64: a tiny seeded generator whose whole state is one long, so
+ * engine snapshots can copy it exactly (java.util.Random can't be cloned).
+ */
+final class Rng {
+    long state;
+
+    Rng(long seed) {
+        this.state = seed;
+    }
+
+    Rng(Rng other) {
+        this.state = other.state;
+    }
+
+    long nextLong() {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Uniform in [0, bound), by multiply-shift; the bias is negligible for board-sized bounds. */
+    int nextInt(int bound) {
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+}
@@ -0,0 +1,421 @@
+package snakegame;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * High scores and per-player match history, persisted off the game thread.
+ *
+ * <p>The file is an append-only log of text lines, each prefixed with the
+ * CRC32 of the rest of the line:
+ * <pre>
+ * 1a2b3c4d H player score          high score now this
+ * 1a2b3c4d R                       high scores reset
+ * 1a2b3c4d M player epochMs score playMs outcome(W/L/T)
+ * </pre>
+ * Callers only update memory and return. A daemon writer waits
+ * {@link #COALESCE_MILLIS} after the first change so bursts become one
+ * append and one fsync. High scores are written as their latest value, not
+ * once per point. A torn or corrupt line fails its checksum and is skipped
+ * (and counted) on load. Once the log has grown enough, the writer rewrites
+ * it as a compact snapshot through a temp file and an atomic rename, so a
+ * crash leaves either the old file or the new one.
+ *
+ * <p>{@link #openInBackground} leaves even the load to the writer thread.
+ * Until it is done the store holds only this session's changes; the loaded
+ * history is then merged in under them.
+ */
+final class ScoreStore implements Closeable {
+    static final int PLAYERS = 2;
+    static final long COALESCE_MILLIS = 250;
+    static final int LEADERBOARD_SIZE = 10, HISTORY_SIZE = 50;
+    private static final int COMPACT_AFTER_LINES = 4096;
+
+    /** One player's side of a finished match. */
+    static final class Entry {
+        final long when; // epoch ms
+        final int score;
+        final long playMillis;
+        final char outcome; // 'W', 'L' or 'T'
+
+        Entry(long when, int score, long playMillis, char outcome) {
+            this.when = when;
+            this.score = score;
+            this.playMillis = playMillis;
+            this.outcome = outcome;
+        }
+    }
+
+    private final Path file;
+    private final int[] high = new int[PLAYERS];
+    private final List<List<Entry>> best = new ArrayList<>();        // per player, highest score first
+    private final List<ArrayDeque<Entry>> recent = new ArrayList<>(); // per player, newest first
+    private int corruptLines;
+    private boolean loaded = true, resetWhileLoading;
+    // set when the writer thread has to load the log first
+    private Path legacyFile;
+    private Runnable onLoaded;
+
+    // pending writes, all guarded by this
+    private final StringBuilder pending = new StringBuilder();
+    private final int[] writtenHigh = new int[PLAYERS];
+    private long changes, durable; // changes made vs. changes known to be on disk
+    private boolean flushNow, closing;
+    private int logLines;
+    private boolean compactSoon;
+
+    private final Thread writer;
+    private FileChannel log;
+
+    private ScoreStore(Path file) {
+        this.file = file;
+        for (int p = 0; p < PLAYERS; p++) {
+            best.add(new ArrayList<>());
+            recent.add(new ArrayDeque<>());
+        }
+        writer = new Thread(this::run, "score-writer");
+        writer.setDaemon(true);
+    }
+
+    /**
+     * Loads the log (importing an old two-line high score file if there is no
+     * log yet) and starts the writer. A log that can't be read is reported and
+     * left alone: the store then keeps this run's scores in memory only,
+     * rather than risk overwriting history it couldn't see.
+     */
+    static ScoreStore open(Path file, Path legacyFile) {
+        ScoreStore store = new ScoreStore(file);
+        if (store.read(legacyFile)) store.writer.start();
+        return store;
+    }
+
+    /**
+     * Like {@link #open}, but returns at once and reads the log on the writer
+     * thread, which then calls onLoaded (a log that can't be read is reported
+     * the same way, and onLoaded still runs). Until then {@link #loaded} is
+     * false and the high scores are only this session's.
+     */
+    static ScoreStore openInBackground(Path file, Path legacyFile, Runnable onLoaded) {
+        ScoreStore store = new ScoreStore(file);
+        store.legacyFile = legacyFile;
+        store.onLoaded = onLoaded;
+        store.loaded = false;
+        store.writer.start();
+        return store;
+    }
+
+    /** A store with no file and no writer thread: scores last as long as it does. */
+    static ScoreStore inMemory() {
+        return new ScoreStore(null);
+    }
+
+    // false if the log couldn't be read
+    private boolean read(Path legacyFile) {
+        try {
+            if (Files.exists(file)) load();
+            else if (legacyFile != null && Files.exists(legacyFile)) importLegacy(legacyFile);
+        } catch (IOException e) {
+            System.err.println(file + ": can't read scores, not saving this session: " + e);
+            return false;
+        }
+        System.arraycopy(high, 0, writtenHigh, 0, PLAYERS);
+        if (corruptLines > 0) {
+            System.err.println(file + ": skipped " + corruptLines + " damaged line(s)");
+        }
+        return true;
+    }
+
+    // this session's matches all come after the loaded ones, so they are replayed on top of them
+    private synchronized void merge(ScoreStore disk, boolean readable) {
+        if (readable) {
+            for (int p = 0; p < PLAYERS; p++) {
+                if (!resetWhileLoading) high[p] = Math.max(high[p], disk.high[p]);
+                writtenHigh[p] = resetWhileLoading ? 0 : disk.writtenHigh[p]; // pending holds the R line
+                List<Entry> session = new ArrayList<>();
+                for (var it = recent.get(p).descendingIterator(); it.hasNext(); ) session.add(it.next());
+                best.set(p, disk.best.get(p));
+                recent.set(p, disk.recent.get(p));
+                for (Entry e : session) add(p, e);
+            }
+            corruptLines = disk.corruptLines;
+            logLines = disk.logLines;
+            compactSoon = disk.compactSoon;
+        }
+        loaded = true;
+        notifyAll();
+    }
+
+    /** False while {@link #openInBackground} is still reading the log. */
+    synchronized boolean loaded() {
+        return loaded;
+    }
+
+    synchronized int highScore(int player) {
+        return high[player];
+    }
+
+    /** Raises the player's high score if score beats it; true if it did. */
+    synchronized boolean offerScore(int player, int score) {
+        if (score <= high[player]) return false;
+        high[player] = score;
+        changed();
+        return true;
+    }
+
+    synchronized void resetHighScores() {
+        for (int p = 0; p < PLAYERS; p++) high[p] = 0;
+        if (!loaded) resetWhileLoading = true;
+        append("R");
+    }
+
+    /** Adds a finished match to the player's history and leaderboard. */
+    synchronized void recordMatch(int player, int score, long playMillis, char outcome) {
+        Entry e = new Entry(System.currentTimeMillis(), score, playMillis, outcome);
+        add(player, e);
+        append("M " + player + " " + e.when + " " + score + " " + playMillis + " " + outcome);
+    }
+
+    /** The player's best matches, highest score first (ties: the earlier match first). */
+    synchronized List<Entry> leaderboard(int player) {
+        return new ArrayList<>(best.get(player));
+    }
+
+    /** The player's last matches, newest first. */
+    synchronized List<Entry> history(int player) {
+        return new ArrayList<>(recent.get(player));
+    }
+
+    synchronized int corruptLines() {
+        return corruptLines;
+    }
+
+    /** Blocks until everything changed before the call is on disk (or the writer has failed). */
+    synchronized void flush() throws InterruptedException {
+        long target = changes;
+        flushNow = true;
+        notifyAll();
+        while (durable < target && writer.isAlive()) wait(100);
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closing = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void add(int player, Entry e) {
+        ArrayDeque<Entry> r = recent.get(player);
+        r.addFirst(e);
+        if (r.size() > HISTORY_SIZE) r.removeLast();
+        List<Entry> b = best.get(player);
+        int i = b.size();
+        while (i > 0 && b.get(i - 1).score < e.score) i--;
+        if (i < LEADERBOARD_SIZE) {
+            b.add(i, e);
+            if (b.size() > LEADERBOARD_SIZE) b.remove(b.size() - 1);
+        }
+    }
+
+    // callers hold the lock
+    private void append(String line) {
+        pending.append(line).append('\n');
+        changed();
+    }
+
+    private void changed() {
+        changes++;
+        notifyAll();
+    }
+
+    private void run() {
+        if (onLoaded != null) {
+            ScoreStore disk = new ScoreStore(file);
+            boolean readable = disk.read(legacyFile);
+            merge(disk, readable);
+            onLoaded.run();
+            if (!readable) return;
+        }
+        writeLoop();
+    }
+
+    private void writeLoop() {
+        try {
+            log = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (compactSoon) markDurable(compact());
+            while (true) {
+                synchronized (this) {
+                    while (durable == changes && !closing) wait();
+                    // every change notifies, so wait out a deadline rather than a single wait()
+                    long deadline = System.currentTimeMillis() + COALESCE_MILLIS, left;
+                    while (!flushNow && !closing && (left = deadline - System.currentTimeMillis()) > 0) wait(left);
+                    flushNow = false;
+                }
+                String batch;
+                long upTo;
+                synchronized (this) {
+                    for (int p = 0; p < PLAYERS; p++) {
+                        if (high[p] != writtenHigh[p]) pending.append("H ").append(p).append(' ').append(high[p]).append('\n');
+                        writtenHigh[p] = high[p];
+                    }
+                    batch = pending.toString();
+                    pending.setLength(0);
+                    upTo = changes;
+                }
+                int lines = writeLines(log, batch);
+                log.force(false);
+                logLines += lines;
+                if (logLines > COMPACT_AFTER_LINES) upTo = compact();
+                markDurable(upTo);
+                synchronized (this) {
+                    if (closing && durable == changes) break;
+                }
+            }
+        } catch (IOException e) {
+            // scores stay correct in memory for this run; say so instead of dropping them silently
+            System.err.println(file + ": can't save scores: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                if (log != null) log.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private synchronized void markDurable(long upTo) {
+        durable = Math.max(durable, upTo);
+        notifyAll();
+    }
+
+    /**
+     * Rewrites the log as a snapshot of the current state, atomically. Pending
+     * lines are already part of that state, so they are dropped, not appended.
+     *
+     * @return the change count the snapshot covers
+     */
+    private long compact() throws IOException {
+        StringBuilder snapshot = new StringBuilder();
+        long upTo;
+        synchronized (this) {
+            pending.setLength(0);
+            System.arraycopy(high, 0, writtenHigh, 0, PLAYERS);
+            upTo = changes;
+            for (int p = 0; p < PLAYERS; p++) {
+                // oldest first, so replaying the snapshot rebuilds the same lists
+                Set<Entry> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+                List<Entry> entries = new ArrayList<>();
+                for (var it = recent.get(p).descendingIterator(); it.hasNext(); ) {
+                    Entry e = it.next();
+                    if (seen.add(e)) entries.add(e);
+                }
+                for (Entry e : best.get(p)) if (seen.add(e)) entries.add(e);
+                entries.sort((a, b) -> Long.compare(a.when, b.when));
+                for (Entry e : entries) {
+                    snapshot.append("M ").append(p).append(' ').append(e.when).append(' ').append(e.score).append(' ')
+                            .append(e.playMillis).append(' ').append(e.outcome).append('\n');
+                }
+                snapshot.append("H ").append(p).append(' ').append(writtenHigh[p]).append('\n');
+            }
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        int lines;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            lines = writeLines(out, snapshot.toString());
+            out.force(true);
+        }
+        log.close();
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        log = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        logLines = lines;
+        return upTo;
+    }
+
+    private static int writeLines(FileChannel out, String lines) throws IOException {
+        if (lines.isEmpty()) return 0;
+        StringBuilder sb = new StringBuilder(lines.length() + 16 * 9);
+        int n = 0;
+        for (String line : lines.split("\n")) {
+            sb.append(String.format("%08x", crc(line))).append(' ').append(line).append('\n');
+            n++;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) out.write(buf);
+        return n;
+    }
+
+    private static long crc(String line) {
+        CRC32 crc = new CRC32();
+        crc.update(line.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private void load() throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                logLines++;
+                if (!apply(line)) corruptLines++;
+            }
+        }
+        // don't keep appending after a torn tail: start over from a clean snapshot
+        compactSoon = corruptLines > 0;
+    }
+
+    private boolean apply(String line) {
+        if (line.length() < 10 || line.charAt(8) != ' ') return false;
+        String payload = line.substring(9);
+        try {
+            if (Long.parseLong(line.substring(0, 8), 16) != crc(payload)) return false;
+            String[] f = payload.split(" ");
+            switch (f[0]) {
+                case "H" -> high[player(f[1])] = Integer.parseInt(f[2]);
+                case "R" -> { for (int p = 0; p < PLAYERS; p++) high[p] = 0; }
+                case "M" -> add(player(f[1]), new Entry(Long.parseLong(f[2]), Integer.parseInt(f[3]), Long.parseLong(f[4]), f[5].charAt(0)));
+                default -> { return false; }
+            }
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static int player(String s) {
+        int p = Integer.parseInt(s);
+        if (p < 0 || p >= PLAYERS) throw new IllegalArgumentException("player " + p);
+        return p;
+    }
+
+    private void importLegacy(Path legacy) throws IOException {
+        List<String> lines = Files.readAllLines(legacy, StandardCharsets.UTF_8);
+        for (int p = 0; p < PLAYERS && p < lines.size(); p++) {
+            try {
+                high[p] = Math.max(0, Integer.parseInt(lines.get(p).trim()));
+            } catch (NumberFormatException e) {
+                corruptLines++;
+            }
+        }
+        compactSoon = true;
+    }
+}
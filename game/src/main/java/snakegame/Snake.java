@@ -0,0 +1,198 @@
+package snakegame;
+
+class Snake {
+    static final int NONE = -1, UP = 0, DOWN = 1, LEFT = 2, RIGHT = 3;
+    static final int[] DX = {0, 0, -1, 1};
+    static final int[] DY = {-1, 1, 0, 0};
+
+    private static final int INITIAL_CAPACITY = 64; // power of two
+
+    // body as a ring of packed cell indices (y * cols + x); segment 0 is the head
+    private int[] cells = new int[INITIAL_CAPACITY];
+    private int head = 0, length = 0;
+    final int cols;
+
+    int dx = 0, dy = 0;
+    int score = 0;
+    long startTime, endTime = -1; // simulated game clock, in ms
+    int leftBound, rightBound, rows;
+    boolean growing = false;
+
+    // occupancy shared with the other snakes on the board; null for decorative snakes
+    final Grid grid;
+    final short id;
+    boolean collided = false, hitWall = false;
+
+    // where the tail was before the last move, used to interpolate between ticks
+    boolean moved = false, tailMoved = false;
+    int prevTail;
+
+    Snake(int startX, int startY, int leftBound, int rightBound, int cols, int rows, long startTime, Grid grid, short id) {
+        this.leftBound = leftBound;
+        this.rightBound = rightBound;
+        this.cols = cols;
+        this.rows = rows;
+        this.startTime = startTime;
+        this.grid = grid;
+        this.id = id;
+        for (int i = 0; i < 4; i++) {
+            int cell = startY * cols + startX - i;
+            cells[length++] = cell;
+            if (grid != null) grid.occupy(cell, id);
+        }
+    }
+
+    /** Snapshot copy, attached to the copied grid. */
+    Snake(Snake other, Grid grid) {
+        this.cols = other.cols;
+        this.grid = grid;
+        this.id = other.id;
+        copyFrom(other);
+    }
+
+    /** Overwrites this snake's state with another's; the grid is not touched. */
+    void copyFrom(Snake other) {
+        if (cells.length == other.cells.length) System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        else cells = other.cells.clone();
+        this.head = other.head;
+        this.length = other.length;
+        this.dx = other.dx;
+        this.dy = other.dy;
+        this.score = other.score;
+        this.startTime = other.startTime;
+        this.endTime = other.endTime;
+        this.leftBound = other.leftBound;
+        this.rightBound = other.rightBound;
+        this.rows = other.rows;
+        this.growing = other.growing;
+        this.collided = other.collided;
+        this.hitWall = other.hitWall;
+        this.moved = other.moved;
+        this.tailMoved = other.tailMoved;
+        this.prevTail = other.prevTail;
+    }
+
+    void setDirection(int dir) {
+        if (dir != NONE) setDirection(DX[dir], DY[dir]);
+    }
+
+    /** Whether setDirection(dir) would change the heading (not a repeat, not a reversal). */
+    boolean turns(int dir) {
+        int ndx = DX[dir], ndy = DY[dir];
+        if (dx == -ndx && dy == -ndy) return false;
+        return dx != ndx || dy != ndy;
+    }
+
+    /** The current heading as a direction, or NONE before the first move. */
+    int heading() {
+        for (int dir = UP; dir <= RIGHT; dir++) if (DX[dir] == dx && DY[dir] == dy) return dir;
+        return NONE;
+    }
+
+    void setDirection(int dx, int dy) {
+        if (this.dx == -dx && this.dy == -dy) return;
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    /** A whole move for a snake alone on its grid; matches move all their snakes together in {@link GameEngine#step}. */
+    void move() {
+        int newHead = advance();
+        if (newHead < 0 || grid == null) return;
+        if (grid.owner[newHead] != Grid.EMPTY) collided = true;
+        else grid.occupy(newHead, id);
+    }
+
+    /**
+     * Slides on and frees the tail's cell, but leaves the new head's cell for
+     * the engine to claim, so every snake's tail can be out of the way before
+     * anybody's head arrives.
+     *
+     * @return the new head's cell, or -1 if the snake stood still or hit a wall
+     */
+    int advance() {
+        if (dx == 0 && dy == 0) {
+            moved = false;
+            return -1;
+        }
+        int nx = headX() + dx, ny = headY() + dy;
+        if (nx < leftBound || nx >= rightBound || ny < 0 || ny >= rows) {
+            // the head never leaves the board, it just stops where it was
+            collided = hitWall = true;
+            moved = false;
+            return -1;
+        }
+        int tail = cell(length - 1);
+        slide(nx, ny);
+        // the tail has already left its cell, so following it is not a collision
+        if (grid != null && tailMoved && grid.owner[tail] == id) grid.vacate(tail);
+        return cell(0);
+    }
+
+    /** Gives back every cell this snake still holds, once it is out of the match. */
+    void leaveGrid() {
+        if (grid == null) return;
+        for (int i = 0; i < length; i++) if (grid.owner[cell(i)] == id) grid.vacate(cell(i));
+    }
+
+    /** Puts the head on (x, y) and drops the tail unless growing; no rules, no grid. */
+    void slide(int x, int y) {
+        prevTail = cell(length - 1);
+        tailMoved = !growing;
+        if (growing) {
+            if (length == cells.length) expand();
+            length++;
+            growing = false;
+        }
+        head = (head - 1) & (cells.length - 1);
+        cells[head] = y * cols + x;
+        moved = true;
+    }
+
+    // only runs when the body outgrows the ring, so steady-state ticks allocate nothing
+    private void expand() {
+        int[] bigger = new int[cells.length * 2];
+        for (int i = 0; i < length; i++) bigger[i] = cell(i);
+        cells = bigger;
+        head = 0;
+    }
+
+    void grow(long now) {
+        score++;
+        growing = true;
+        endTime = now;
+    }
+
+    /** Wall, self or cross-snake hit on the last move; O(1) via the shared grid. */
+    boolean collision() {
+        return collided;
+    }
+
+    int length() { return length; }
+
+    int cell(int i) { return cells[(head + i) & (cells.length - 1)]; }
+
+    int x(int i) { return cell(i) % cols; }
+
+    int y(int i) { return cell(i) / cols; }
+
+    int headX() { return x(0); }
+
+    int headY() { return y(0); }
+
+    boolean isHeadOn(int cell) { return !hitWall && cell(0) == cell; }
+
+    // cell segment i occupied on the previous tick
+    int prevCell(int i) {
+        if (!moved) return cell(i);
+        if (i + 1 < length) return cell(i + 1);
+        return tailMoved ? prevTail : cell(i);
+    }
+
+    double getPlayTime(long now) {
+        if (endTime == -1) return (now - startTime) / 1000.0;
+        return (endTime - startTime) / 1000.0;
+    }
+
+    void stopTime(long now) { if (endTime == -1) endTime = now; }
+}
@@ -0,0 +1,26 @@
+package snakegame;
+
+/**
+ * Something other than the keyboard that steers a snake: a bot, a scripted
+ * test, a remote player. Set one in {@link GameEngine#controllers} and the
+ * engine asks it once per tick instead of polling that player's input queue.
+ *
+ * <p>Controllers keep scratch state and are called from whichever thread
+ * ticks the match, so give every match its own instances.
+ */
+interface SnakeController {
+    /** The direction to apply this tick, or Snake.NONE to keep going. */
+    int nextDirection(GameEngine match, int player);
+
+    /** A fresh built-in bot: "greedy", "path" or "survival". */
+    static SnakeController byName(String name) {
+        return switch (name) {
+            case "greedy" -> new GreedyBot();
+            case "path" -> new PathBot();
+            case "survival" -> new SurvivalBot();
+            default -> throw new IllegalArgumentException("unknown bot " + name);
+        };
+    }
+
+    String[] BUILT_IN = {"greedy", "path", "survival"};
+}
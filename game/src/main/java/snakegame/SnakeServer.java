@@ -0,0 +1,285 @@
+package snakegame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * Authoritative match server: one thread, one non-blocking {@link Selector},
+ * any number of concurrent two player matches. Clients are paired in the order
+ * they say HELLO; each match runs its own {@link GameEngine} on its own fixed
+ * step, and after every tick the server sends both players the same TICK
+ * delta. Commands from a client go straight into its player's InputQueue, so
+ * the server applies them with exactly the rules local play uses.
+ *
+ * <p>Run with {@code java -cp game.jar snakegame.SnakeServer [port]}.
+ */
+final class SnakeServer implements Runnable, Closeable {
+    // a client whose unsent output backs up this far is dropped rather than buffered forever
+    private static final int OUT_BUFFER = 16 * 1024;
+    // same catch-up cap as GameEngine.update, so a stalled server doesn't fast-forward matches
+    private static final int MAX_STEPS_PER_PASS = 5;
+
+    private final int cols, rows;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final ArrayList<Match> matches = new ArrayList<>();
+    private final Rng seeds = new Rng(System.nanoTime());
+    private final ByteBuffer packet = ByteBuffer.allocate(NetProtocol.MAX_FRAME + 1);
+    private Session waiting;
+    private volatile boolean running = true;
+
+    SnakeServer(InetSocketAddress address, int cols, int rows) throws IOException {
+        this.cols = cols;
+        this.rows = rows;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    int port() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    int matchCount() {
+        return matches.size();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                long wait = Long.MAX_VALUE;
+                for (Match m : matches) wait = Math.min(wait, m.nextTickNanos - now);
+                if (wait <= 0) selector.selectNow();
+                else selector.select(Math.max(1, Math.min(1000, wait / 1_000_000)));
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else handle(key);
+                }
+                tickMatches(System.nanoTime());
+            }
+        } catch (IOException e) {
+            if (running) throw new RuntimeException(e);
+        } finally {
+            closeQuietly(selector);
+            closeQuietly(server);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Session s = new Session(channel);
+            s.key = channel.register(selector, SelectionKey.OP_READ, s);
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        Session s = (Session) key.attachment();
+        try {
+            if (key.isWritable()) s.flush();
+            if (key.isReadable()) {
+                if (s.channel.read(s.in) < 0) {
+                    disconnect(s);
+                    return;
+                }
+                s.in.flip();
+                NetProtocol.drain(s.in, frame -> onFrame(s, frame));
+            }
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            disconnect(s);
+        }
+    }
+
+    private void onFrame(Session s, ByteBuffer frame) {
+        switch (frame.get()) {
+            case NetProtocol.HELLO -> {
+                if ((frame.get() & 0xFF) != NetProtocol.VERSION) throw new IllegalArgumentException("protocol version");
+                if (s.match != null) return;
+                if (waiting == null || !waiting.channel.isOpen()) waiting = s;
+                else if (waiting != s) {
+                    startMatch(waiting, s);
+                    waiting = null;
+                }
+            }
+            case NetProtocol.INPUT -> {
+                int dir = frame.get();
+                if (dir < Snake.UP || dir > Snake.RIGHT) throw new IllegalArgumentException("direction " + dir);
+                if (s.match == null) return; // a late command for a match that just ended
+                if (!s.match.engine.input(s.player).offer(dir)) s.dropped++;
+            }
+            default -> throw new IllegalArgumentException("unexpected message");
+        }
+    }
+
+    private void startMatch(Session a, Session b) {
+        long seed = seeds.nextLong();
+        Match m = new Match(new GameEngine(cols, rows, seed), a, b);
+        m.nextTickNanos = System.nanoTime() + (NetProtocol.COUNTDOWN_MILLIS + m.engine.delay) * 1_000_000L;
+        // both join before anyone is told, so a failed send ends the match for the other one too
+        for (int p = 0; p < 2; p++) {
+            Session s = m.players[p];
+            s.match = m;
+            s.player = p;
+            s.dropped = 0;
+        }
+        for (int p = 0; p < 2 && !m.ended; p++) {
+            Session s = m.players[p];
+            ByteBuffer buf = NetProtocol.begin(packet, NetProtocol.START);
+            buf.put((byte) p);
+            Varint.write(buf, cols);
+            Varint.write(buf, rows);
+            buf.putLong(seed);
+            Varint.write(buf, NetProtocol.COUNTDOWN_MILLIS);
+            send(s, NetProtocol.end(buf));
+        }
+        if (!m.ended) matches.add(m); // ended already if a send failed, and the other player told
+    }
+
+    private void tickMatches(long now) {
+        for (int i = matches.size() - 1; i >= 0; i--) {
+            Match m = matches.get(i);
+            int steps = 0;
+            while (!m.ended && !m.engine.gameOver && now - m.nextTickNanos >= 0) {
+                tick(m);
+                m.nextTickNanos += m.engine.delay * 1_000_000L;
+                if (++steps == MAX_STEPS_PER_PASS) {
+                    m.nextTickNanos = Math.max(m.nextTickNanos, now);
+                    break;
+                }
+            }
+            if (!m.ended && m.engine.gameOver) endMatch(m, NetProtocol.END_FINISHED);
+        }
+    }
+
+    private void tick(Match m) {
+        GameEngine e = m.engine;
+        int food1 = e.food(0), food2 = e.food(1);
+        int events = e.tick();
+
+        ByteBuffer buf = NetProtocol.begin(packet, NetProtocol.TICK);
+        Varint.write(buf, e.ticks);
+        for (int p = 0; p < 2; p++) Varint.write(buf, e.input(p).consumed() + m.players[p].dropped);
+        buf.put((byte) NetProtocol.snakeState(e.snake(0), e.running[0], (events & GameEngine.EVENT_ATE_1) != 0));
+        buf.put((byte) NetProtocol.snakeState(e.snake(1), e.running[1], (events & GameEngine.EVENT_ATE_2) != 0));
+        int mask = (food1 != e.food(0) ? 1 : 0) | (food2 != e.food(1) ? 2 : 0);
+        buf.put((byte) mask);
+        if ((mask & 1) != 0) Varint.write(buf, e.food(0) + 1);
+        if ((mask & 2) != 0) Varint.write(buf, e.food(1) + 1);
+        NetProtocol.end(buf);
+        for (Session s : m.players) {
+            // a failed send ends the match, and the END it sends the other player reuses this buffer
+            if (m.ended) break;
+            buf.rewind();
+            send(s, buf);
+        }
+    }
+
+    private void endMatch(Match m, int reason) {
+        m.ended = true;
+        matches.remove(m);
+        ByteBuffer buf = NetProtocol.end(NetProtocol.begin(packet, NetProtocol.END).put((byte) reason));
+        for (Session s : m.players) {
+            if (s.match != m) continue;
+            s.match = null;
+            buf.rewind();
+            send(s, buf);
+        }
+    }
+
+    private void send(Session s, ByteBuffer frame) {
+        if (!s.channel.isOpen()) return;
+        if (s.out.remaining() < frame.remaining()) {
+            disconnect(s);
+            return;
+        }
+        s.out.put(frame);
+        try {
+            s.flush();
+        } catch (IOException e) {
+            disconnect(s);
+        }
+    }
+
+    private void disconnect(Session s) {
+        if (waiting == s) waiting = null;
+        closeQuietly(s.channel);
+        Match m = s.match;
+        if (m == null) return;
+        s.match = null;
+        // the survivor is told and goes back to the lobby; the match isn't played against nobody
+        endMatch(m, NetProtocol.END_OPPONENT_LEFT);
+    }
+
+    private static void closeQuietly(Closeable c) {
+        try {
+            c.close();
+        } catch (IOException ignored) {}
+    }
+
+    private static final class Match {
+        final GameEngine engine;
+        final Session[] players;
+        long nextTickNanos;
+        boolean ended;
+
+        Match(GameEngine engine, Session a, Session b) {
+            this.engine = engine;
+            this.players = new Session[] {a, b};
+        }
+    }
+
+    private static final class Session {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(4 * (NetProtocol.MAX_FRAME + 1));
+        final ByteBuffer out = ByteBuffer.allocate(OUT_BUFFER);
+        SelectionKey key;
+        Match match;
+        int player;
+        long dropped; // commands lost to a full queue still count towards the ack
+
+        Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /** Writes what the socket takes now and waits for OP_WRITE for the rest. */
+        void flush() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            key.interestOps(out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : NetProtocol.DEFAULT_PORT;
+        SnakeServer server = new SnakeServer(new InetSocketAddress(port), 50, 30);
+        System.out.println("Snake server listening on port " + server.port());
+        server.run();
+    }
+}
@@ -0,0 +1,489 @@
+package snakegame;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Soak test for the match rules on the headless engine. A fork-join pool
+ * plays games on random boards, each player either turning at random or
+ * steered by a bot with some noise mixed in (so snakes live long enough to
+ * grow), and after every tick checks that
+ * <ul>
+ *   <li>every head is on the board, inside its player's band;</li>
+ *   <li>every body is four cells plus one per point scored;</li>
+ *   <li>every food, on any board, is on a reserved cell no snake lies on, and never
+ *       spawns on another's;</li>
+ *   <li>the alive count and game over flag agree with who is running;</li>
+ *   <li>every snake's next move is due within its own pace, and the next tick on the soonest;</li>
+ * </ul>
+ * and every few ticks that the grid and its free lists agree with the bodies.
+ * Once a game ends it is replayed from its seed and inputs, switching to a
+ * snapshot copy part way, and must end in exactly the same state.
+ *
+ * <p>A failing game is shrunk to the shortest prefix and fewest turns that
+ * still break the same rule, and printed with the arguments that replay it.
+ * Game i draws everything from seed + i, so a run finds the same failures
+ * however the pool schedules it.
+ */
+final class Soak {
+    static final int DEFAULT_MAX_TICKS = 5000;
+    private static final int LEAF_GAMES = 64;
+    // the grid check walks the whole board, so it runs this often (and at the end) rather than every tick
+    private static final int GRID_CHECK_TICKS = 64;
+    private static final int MAX_SHRINK_RUNS = 20_000;
+    private static final String DIRECTIONS = "UDLR";
+
+    final long seed;
+    final int maxTicks;
+    private final LongAdder ticks = new LongAdder();
+
+    Soak(long seed, int maxTicks) {
+        this.seed = seed;
+        this.maxTicks = maxTicks;
+    }
+
+    /** A board and engine seed: with the inputs, all it takes to replay a game. */
+    static final class Setup {
+        final int cols, rows, players;
+        final boolean shared;
+        final long engineSeed;
+
+        Setup(int cols, int rows, int players, boolean shared, long engineSeed) {
+            GameEngine.checkSetup(cols, rows, players, shared);
+            this.cols = cols;
+            this.rows = rows;
+            this.players = players;
+            this.shared = shared;
+            this.engineSeed = engineSeed;
+        }
+
+        GameEngine newGame() {
+            return new GameEngine(cols, rows, players, shared, engineSeed);
+        }
+
+        @Override
+        public String toString() {
+            return cols + " " + rows + " " + players + " " + (shared ? "shared" : "banded") + " " + Long.toHexString(engineSeed);
+        }
+    }
+
+    /** A broken rule: which one, the details, and the tick it was seen after. */
+    static final class Violation {
+        final String rule, detail;
+        final int tick;
+
+        Violation(String rule, String detail, int tick) {
+            this.rule = rule;
+            this.detail = detail;
+            this.tick = tick;
+        }
+
+        @Override
+        public String toString() {
+            return rule + ": " + detail + " after tick " + tick;
+        }
+    }
+
+    /** A game that broke a rule, with its inputs up to the tick it did; inputs[t * players + p] is tick t + 1's. */
+    static final class Failure {
+        final long game;
+        final Setup setup;
+        final int[] inputs;
+        final int ticks, snapshotAt;
+        final Violation violation;
+
+        Failure(long game, Setup setup, int[] inputs, int ticks, int snapshotAt, Violation violation) {
+            this.game = game;
+            this.setup = setup;
+            this.inputs = inputs;
+            this.ticks = ticks;
+            this.snapshotAt = snapshotAt;
+            this.violation = violation;
+        }
+
+        /** The arguments to main that replay this failure. */
+        String replayArgs() {
+            StringBuilder sb = new StringBuilder("replay ").append(setup).append(' ').append(ticks).append(' ').append(snapshotAt);
+            for (int i = 0; i < ticks * setup.players; i++) {
+                if (inputs[i] == Snake.NONE) continue;
+                sb.append(' ').append(i / setup.players + 1).append('.').append(i % setup.players + 1)
+                        .append('.').append(DIRECTIONS.charAt(inputs[i]));
+            }
+            return sb.toString();
+        }
+    }
+
+    /** Ticks played so far, replays not included. */
+    long ticks() {
+        return ticks.sum();
+    }
+
+    /** Plays games first .. first+games-1; failures[i] is game first+i's, or null if it kept to the rules. */
+    Failure[] play(long first, int games, ForkJoinPool pool) {
+        Failure[] failures = new Failure[games];
+        pool.invoke(new Games(first, 0, games, failures));
+        return failures;
+    }
+
+    @SuppressWarnings("serial") // a fork-join task, never serialized
+    private final class Games extends RecursiveAction {
+        final long first;
+        final int from, to;
+        final Failure[] failures;
+
+        Games(long first, int from, int to, Failure[] failures) {
+            this.first = first;
+            this.from = from;
+            this.to = to;
+            this.failures = failures;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_GAMES) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Games(first, from, mid, failures), new Games(first, mid, to, failures));
+                return;
+            }
+            int[] inputs = new int[maxTicks * GameEngine.MAX_PLAYERS];
+            for (int i = from; i < to; i++) failures[i] = playOne(first + i, inputs);
+        }
+    }
+
+    // boards are drawn until one fits the players, so the sizes never go out of step with GameEngine.checkSetup
+    private static Setup setup(Rng random) {
+        while (true) {
+            int players = random.nextInt(3) == 0 ? 2 + random.nextInt(7) : 2;
+            boolean shared = random.nextInt(3) == 0;
+            int cols = 5 + random.nextInt(100), rows = 1 + random.nextInt(50);
+            try {
+                return new Setup(cols, rows, players, shared, random.nextLong());
+            } catch (IllegalArgumentException tooSmall) {
+                // draw again
+            }
+        }
+    }
+
+    private Failure playOne(long game, int[] inputs) {
+        Rng random = new Rng(seed + game);
+        Setup setup = setup(random);
+        int players = setup.players;
+        SnakeController[] bots = new SnakeController[players];
+        for (int p = 0; p < players; p++) {
+            if (random.nextInt(2) != 0) continue;
+            // the searching bots fill whole boards but cost a flood fill a tick, so most bot players just chase food
+            String bot = random.nextInt(4) == 0 ? SnakeController.BUILT_IN[random.nextInt(SnakeController.BUILT_IN.length)] : "greedy";
+            bots[p] = SnakeController.byName(bot);
+        }
+        int noise = 4 + random.nextInt(60); // a bot's move is swapped for a random one about once in this many ticks
+        int[] turn = new int[players], foodsBefore = new int[players];
+        GameEngine match = setup.newGame();
+        long events = 0;
+        int t = 0;
+        Violation v;
+        try {
+            v = check(match, null, true, 0);
+            while (v == null && !match.gameOver && t < maxTicks) {
+                for (int p = 0; p < players; p++) {
+                    if (!match.movesNext(p)) turn[p] = Snake.NONE;
+                    else if (bots[p] != null && random.nextInt(noise) != 0) turn[p] = bots[p].nextDirection(match, p);
+                    else turn[p] = random.nextInt(4) == 0 ? random.nextInt(4) : Snake.NONE;
+                }
+                System.arraycopy(turn, 0, inputs, t * players, players);
+                System.arraycopy(match.foods, 0, foodsBefore, 0, players);
+                events = events * 31 + match.step(turn);
+                t++;
+                v = check(match, foodsBefore, t % GRID_CHECK_TICKS == 0 || match.gameOver, t);
+            }
+        } catch (RuntimeException e) {
+            v = new Violation("exception", e.toString(), t);
+        }
+        ticks.add(t);
+        int snapshotAt = t == 0 ? 0 : 1 + random.nextInt(t);
+        if (v == null) v = compareReplay(setup, inputs, t, snapshotAt, digest(match) * 31 + events);
+        if (v == null) return null;
+        return new Failure(game, setup, Arrays.copyOf(inputs, t * players), t, snapshotAt, v);
+    }
+
+    /**
+     * The first rule the match breaks as it stands, or null. Food is checked
+     * against the bodies where it changed since foodsBefore (everywhere if it
+     * is null); fullGrid also checks every cell of the grid.
+     */
+    static Violation check(GameEngine match, int[] foodsBefore, boolean fullGrid, int tick) {
+        int alive = 0;
+        for (int p = 0; p < match.players; p++) {
+            Snake s = match.snake(p);
+            if (match.running[p]) alive++;
+            int x = s.headX(), y = s.headY();
+            if (x < s.leftBound || x >= s.rightBound || y < 0 || y >= match.rows) {
+                return new Violation("head off the board", "P" + (p + 1) + " at " + x + "," + y, tick);
+            }
+            // a point is scored on the tick the food is eaten, the segment added on the next move
+            if (s.length() + (s.growing ? 1 : 0) != s.score + 4) {
+                return new Violation("length", "P" + (p + 1) + " is " + s.length() + " long with " + s.score + " points", tick);
+            }
+            int food = match.foods[p];
+            if (foodsBefore == null || food != foodsBefore[p]) {
+                // none is only spawned on a full area; cells freed later don't bring it back until the next meal
+                int region = match.shared ? 0 : p;
+                if (food < 0 && match.grid.freeCount(region) > 0) {
+                    return new Violation("no food", "P" + (p + 1) + " got none with " + match.grid.freeCount(region) + " free cells", tick);
+                }
+                // the bodies are walked here, and every food compared, rather than trusting the grid
+                int under = food < 0 ? -1 : snakeAt(match, food);
+                if (under >= 0) {
+                    return new Violation("food under a snake", "P" + (p + 1) + "'s spawned at " + cellName(match, food)
+                            + " under P" + (under + 1), tick);
+                }
+                for (int q = 0; q < match.players; q++) {
+                    if (q != p && food >= 0 && match.foods[q] == food) {
+                        return new Violation("shared food", "P" + (p + 1) + "'s spawned on P" + (q + 1) + "'s at " + cellName(match, food), tick);
+                    }
+                }
+            }
+            // a food keeps its cell reserved, so no snake, alive or dead, ever lies on it
+            if (food >= 0 && !match.grid.reserved(food)) {
+                return new Violation("food under a snake", "P" + (p + 1) + "'s at " + cellName(match, food)
+                        + (match.grid.owner[food] == Grid.EMPTY ? " is not reserved" : " under P" + match.grid.owner[food]), tick);
+            }
+        }
+        if (alive != match.alive || match.gameOver != (alive == 0)) {
+            return new Violation("alive count", alive + " running, alive " + match.alive + ", game over " + match.gameOver, tick);
+        }
+        if (!match.gameOver) {
+            long soonest = Long.MAX_VALUE;
+            for (int p = 0; p < match.players; p++) {
+                if (!match.running[p]) continue;
+                int pace = match.moveDelay[p];
+                long due = match.nextMove[p] - match.clock;
+                if (pace < GameEngine.MIN_DELAY || pace > GameEngine.START_DELAY || due <= 0 || due > pace) {
+                    return new Violation("schedule", "P" + (p + 1) + " moves every " + pace + " ms, next in " + due, tick);
+                }
+                soonest = Math.min(soonest, due);
+            }
+            if (match.delay != soonest) {
+                return new Violation("schedule", "next tick in " + match.delay + " ms, soonest move in " + soonest, tick);
+            }
+        }
+        return fullGrid ? checkGrid(match, tick) : null;
+    }
+
+    // the running player whose body covers the cell, or -1; walks the bodies, so doesn't trust the grid
+    private static int snakeAt(GameEngine match, int cell) {
+        for (int p = 0; p < match.players; p++) {
+            if (!match.running[p]) continue;
+            Snake s = match.snake(p);
+            for (int i = 0; i < s.length(); i++) if (s.cell(i) == cell) return p;
+        }
+        return -1;
+    }
+
+    private static int foodOwner(GameEngine match, int cell) {
+        for (int p = 0; p < match.players; p++) if (match.foods[p] == cell) return p;
+        return -1;
+    }
+
+    private static Violation checkGrid(GameEngine match, int tick) {
+        Grid grid = match.grid;
+        for (int p = 0; p < match.players; p++) {
+            if (!match.running[p]) continue;
+            Snake s = match.snake(p);
+            for (int i = 0; i < s.length(); i++) {
+                int cell = s.cell(i);
+                if (grid.owner[cell] != s.id) {
+                    return new Violation("grid", "P" + (p + 1) + " segment " + i + " at " + cellName(match, cell)
+                            + " is marked " + grid.owner[cell], tick);
+                }
+            }
+        }
+        // and nothing else is marked as a snake's, and a dead snake's not at all: nothing draws a dead snake, so a
+        // cell left behind would be an invisible wall; and every empty cell is free but the ones foods reserve
+        int[] owned = new int[match.players + 1];
+        int regions = match.shared ? 1 : match.players;
+        for (int r = 0; r < regions; r++) {
+            for (int x = grid.regionStart(r); x < grid.regionStart(r + 1); x++) {
+                for (int y = 0; y < grid.rows; y++) {
+                    int cell = y * grid.cols + x;
+                    if (grid.reserved(cell) && foodOwner(match, cell) < 0) {
+                        return new Violation("grid", cellName(match, cell) + " is reserved with no food on it", tick);
+                    }
+                    if (!grid.reserved(cell)) owned[grid.owner[cell]]++;
+                }
+            }
+            int empty = owned[Grid.EMPTY];
+            owned[Grid.EMPTY] = 0;
+            if (empty != grid.freeCount(r)) {
+                return new Violation("grid", "region " + r + " has " + empty + " empty cells but " + grid.freeCount(r) + " free", tick);
+            }
+        }
+        for (int p = 0; p < match.players; p++) {
+            Snake s = match.snake(p);
+            if (match.running[p] && owned[s.id] != s.length()) {
+                return new Violation("grid", owned[s.id] + " cells are marked P" + (p + 1) + "'s, " + s.length() + " long", tick);
+            }
+            if (!match.running[p] && owned[s.id] != 0) {
+                return new Violation("grid", owned[s.id] + " cells are still marked P" + (p + 1) + "'s after it died", tick);
+            }
+        }
+        return null;
+    }
+
+    private static String cellName(GameEngine match, int cell) {
+        return cell % match.cols + "," + cell / match.cols;
+    }
+
+    /** Everything about the match that later ticks or the result depend on. */
+    static long digest(GameEngine match) {
+        long h = match.ticks;
+        h = h * 31 + match.clock;
+        h = h * 31 + match.delay;
+        h = h * 31 + match.alive;
+        h = h * 31 + match.winner();
+        for (int p = 0; p < match.players; p++) {
+            Snake s = match.snake(p);
+            h = h * 31 + match.foods[p];
+            h = h * 31 + (match.running[p] ? 1 : 0);
+            h = h * 31 + match.moveDelay[p];
+            h = h * 31 + match.nextMove[p];
+            h = h * 31 + s.score;
+            h = h * 31 + s.endTime;
+            h = h * 31 + (s.growing ? 1 : 0);
+            h = h * 31 + s.heading();
+            h = h * 31 + s.length();
+            for (int i = 0; i < s.length(); i++) h = h * 31 + s.cell(i);
+        }
+        return h;
+    }
+
+    /**
+     * Replays the inputs without checks, going on from a snapshot copy after
+     * tick snapshotAt; a violation unless it ends on the expected digest.
+     */
+    static Violation compareReplay(Setup setup, int[] inputs, int ticks, int snapshotAt, long expected) {
+        GameEngine match = setup.newGame();
+        int[] turn = new int[setup.players];
+        long events = 0;
+        for (int t = 0; t < ticks; t++) {
+            if (t == snapshotAt) match = new GameEngine(match);
+            System.arraycopy(inputs, t * setup.players, turn, 0, setup.players);
+            events = events * 31 + match.step(turn);
+        }
+        long actual = digest(match) * 31 + events;
+        if (actual == expected) return null;
+        return new Violation("nondeterministic", "replay through a snapshot after tick " + snapshotAt + " ended elsewhere", ticks);
+    }
+
+    /** Replays the inputs checking everything after every tick, then replays them again to compare; the first violation or null. */
+    static Violation recheck(Setup setup, int[] inputs, int ticks, int snapshotAt) {
+        GameEngine match = setup.newGame();
+        int[] turn = new int[setup.players], foodsBefore = new int[setup.players];
+        long events = 0;
+        int t = 0;
+        try {
+            Violation v = check(match, null, true, 0);
+            for (; v == null && t < ticks; ) {
+                System.arraycopy(inputs, t * setup.players, turn, 0, setup.players);
+                System.arraycopy(match.foods, 0, foodsBefore, 0, setup.players);
+                events = events * 31 + match.step(turn);
+                t++;
+                v = check(match, foodsBefore, true, t);
+            }
+            if (v != null) return v;
+        } catch (RuntimeException e) {
+            return new Violation("exception", e.toString(), t);
+        }
+        return compareReplay(setup, inputs, ticks, Math.min(snapshotAt, ticks), digest(match) * 31 + events);
+    }
+
+    /**
+     * Cuts a failure down to the fewest ticks and turns that still break the
+     * same rule: after each successful cut the game ends where it now fails,
+     * and runs of turns are dropped (left as NONE) in halving chunk sizes.
+     */
+    static Failure shrink(Failure failure) {
+        Setup setup = failure.setup;
+        int players = setup.players;
+        String rule = failure.violation.rule;
+        int[] inputs = failure.inputs.clone();
+        int ticks = failure.ticks, snapshotAt = failure.snapshotAt;
+        Violation v = recheck(setup, inputs, ticks, snapshotAt);
+        if (v == null || !v.rule.equals(rule)) return failure; // doesn't reproduce on replay: report it as found
+        ticks = v.tick;
+        int runs = 1;
+        for (int chunk = Math.max(1, Integer.highestOneBit(ticks * players)); chunk >= 1 && runs < MAX_SHRINK_RUNS; chunk /= 2) {
+            for (int from = 0; from < ticks * players && runs < MAX_SHRINK_RUNS; from += chunk) {
+                int to = Math.min(from + chunk, ticks * players);
+                boolean turns = false;
+                for (int i = from; i < to && !turns; i++) turns = inputs[i] != Snake.NONE;
+                if (!turns) continue;
+                int[] trial = inputs.clone();
+                Arrays.fill(trial, from, to, Snake.NONE);
+                runs++;
+                Violation w = recheck(setup, trial, ticks, Math.min(snapshotAt, ticks));
+                if (w != null && w.rule.equals(rule)) {
+                    inputs = trial;
+                    v = w;
+                    ticks = w.tick;
+                }
+            }
+        }
+        return new Failure(failure.game, setup, Arrays.copyOf(inputs, ticks * players), ticks, Math.min(snapshotAt, ticks), v);
+    }
+
+    // replay cols rows players shared|banded engine-seed ticks snapshot-tick [tick.player.direction ...]
+    private static void replay(String[] args) {
+        Setup setup = new Setup(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                args[4].equals("shared"), Long.parseUnsignedLong(args[5], 16));
+        int ticks = Integer.parseInt(args[6]), snapshotAt = Integer.parseInt(args[7]);
+        int[] inputs = new int[ticks * setup.players];
+        Arrays.fill(inputs, Snake.NONE);
+        for (int i = 8; i < args.length; i++) {
+            String[] turn = args[i].split("\\.");
+            inputs[(Integer.parseInt(turn[0]) - 1) * setup.players + Integer.parseInt(turn[1]) - 1] = DIRECTIONS.indexOf(turn[2]);
+        }
+        Violation v = recheck(setup, inputs, ticks, snapshotAt);
+        System.out.println(v == null ? "rules held for " + ticks + " ticks" : v.toString());
+        if (v != null) System.exit(1);
+    }
+
+    public static void main(String[] args) {
+        // usage: Soak [ticks] [seed] [max ticks per game]
+        //        Soak replay <the arguments a failure prints>
+        if (args.length > 0 && args[0].equals("replay")) {
+            replay(args);
+            return;
+        }
+        long budget = args.length > 0 ? Long.parseLong(args[0]) : 100_000_000L;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Soak soak = new Soak(seed, args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_TICKS);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int batch = LEAF_GAMES * pool.getParallelism() * 4;
+        long start = System.nanoTime(), lastReport = start, games = 0;
+        Failure[] found = new Failure[0];
+        while (soak.ticks() < budget) {
+            Failure[] failures = soak.play(games, batch, pool);
+            games += batch;
+            found = Arrays.stream(failures).filter(f -> f != null).toArray(Failure[]::new);
+            if (found.length > 0) break;
+            long now = System.nanoTime();
+            if (now - lastReport > 10_000_000_000L) {
+                lastReport = now;
+                System.out.printf("%,d ticks, %,d games, %.0f ticks/s%n", soak.ticks(), games, soak.ticks() / ((now - start) / 1e9));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%,d ticks in %,d games in %.1fs (%.0f ticks/s, parallelism %d)%n",
+                soak.ticks(), games, seconds, soak.ticks() / seconds, pool.getParallelism());
+        if (found.length == 0) return;
+        // the failures of a batch are reported in game order; the first few are enough to go on
+        for (int i = 0; i < Math.min(found.length, 3); i++) {
+            Failure f = shrink(found[i]);
+            System.out.printf("game %d: %s (found after tick %d)%n  Soak %s%n", f.game, f.violation, found[i].ticks, f.replayArgs());
+        }
+        System.out.printf("%d of the last %d games broke a rule%n", found.length, batch);
+        System.exit(1);
+    }
+}
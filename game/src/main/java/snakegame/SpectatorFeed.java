@@ -0,0 +1,409 @@
+package snakegame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Live feed of a match for any number of spectators. After every tick the
+ * engine's thread encodes what changed (heads that moved, tails that left
+ * their cell, scores, deaths, respawned food) as one frame and appends it to
+ * a byte ring; it never waits on a subscriber. A dispatcher thread copies
+ * whole frames from the ring into each subscriber's own buffer and hands
+ * that to its sink (a socket, a file) without blocking, so one match can feed
+ * hundreds of them.
+ *
+ * <p>Every {@link #KEYFRAME_TICKS} ticks, and whenever a new match starts,
+ * the frame is a keyframe instead: the whole board. New subscribers start
+ * from the latest one. A subscriber the ring laps (its next frame was
+ * overwritten before it could take it) skips ahead to the latest keyframe;
+ * one that is lapped again and again, or whose sink takes nothing for
+ * {@link #MAX_STALL_NANOS}, is dropped.
+ *
+ * <p>Each frame is a varint length, a type byte and a payload of varints and bytes:
+ * <pre>
+ * KEYFRAME  tick, cols, rows, players, shared, then per player: running, score,
+ *           food + 1, length, head cell, and the direction from each segment to
+ *           the next, four to a byte
+ * TICK      tick, count, per changed player: player, state, [score];
+ *           count, per respawned food: player, food + 1
+ * </pre>
+ * A TICK's state byte holds the direction the head moved in and the flags
+ * below; applying it to the previous tick's board gives this tick's.
+ */
+final class SpectatorFeed implements Closeable {
+    static final int KEYFRAME = 1, TICK = 2;
+    static final int DIR_MASK = 0x3, MOVED = 0x4, TAIL_LEFT = 0x8, SCORED = 0x10, DIED = 0x20;
+    static final int KEYFRAME_TICKS = 100;
+
+    // smallest ring; a big board's keyframes get a bigger one
+    private static final int MIN_RING = 1 << 20;
+    // a subscriber's own buffer, drained by its sink
+    private static final int OUT_BUFFER = 64 * 1024;
+    // lapped this often in a row without its sink taking a byte: too slow to follow
+    private static final int MAX_STALLED_RESYNCS = 3;
+    // a sink that takes nothing for this long has gone away, whether or not the ring laps it
+    static final long MAX_STALL_NANOS = 10_000_000_000L;
+
+    /** Where a subscriber's frames go. */
+    interface Sink extends Closeable {
+        /** Takes as much of buf as it can right now, without waiting for more room. */
+        void write(ByteBuffer buf) throws IOException;
+    }
+
+    private final byte[] ring;
+    private final int mask;
+    // ring positions only grow; anything before claimed - ring.length may have been overwritten
+    private volatile long claimed, published;
+    private volatile long lastKeyframe = -1;
+
+    // engine thread only: the state the last frame left spectators with
+    private ByteBuffer frame = ByteBuffer.allocate(4096);
+    private GameEngine match;
+    private long lastTick, lastKeyframeTick;
+    private final int[] scores = new int[GameEngine.MAX_PLAYERS], foods = new int[GameEngine.MAX_PLAYERS];
+    private final boolean[] running = new boolean[GameEngine.MAX_PLAYERS];
+
+    private final Thread dispatcher;
+    private final ConcurrentLinkedQueue<Subscriber> incoming = new ConcurrentLinkedQueue<>();
+    private final ArrayList<Subscriber> subscribers = new ArrayList<>(); // dispatcher only
+    private final ArrayList<ServerSocketChannel> servers = new ArrayList<>();
+    private final LongAdder resyncs = new LongAdder(), dropped = new LongAdder();
+    private volatile int subscriberCount;
+    private volatile boolean open = true;
+
+    /** A feed whose ring holds several keyframes of a match set up like this. */
+    SpectatorFeed(int cols, int rows, int players) {
+        long keyframe = 16 + players * 32L + (long) cols * rows / 4;
+        ring = new byte[(int) Math.max(MIN_RING, Long.highestOneBit(keyframe * 4 - 1) << 1)];
+        mask = ring.length - 1;
+        dispatcher = new Thread(this::dispatch, "spectators");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /** Hands frames from now on to sink, starting with the latest keyframe. */
+    void subscribe(Sink sink) {
+        incoming.add(new Subscriber(sink));
+        LockSupport.unpark(dispatcher);
+    }
+
+    /** Accepts spectators on a TCP port, each one a subscriber; returns the port. */
+    int serve(InetSocketAddress address) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(address);
+        synchronized (servers) {
+            servers.add(server);
+        }
+        Thread t = new Thread(() -> {
+            try {
+                while (open) {
+                    SocketChannel channel = server.accept();
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                    subscribe(socketSink(channel));
+                }
+            } catch (IOException e) {
+                if (open) System.err.println("spectator port closed: " + e);
+            }
+        }, "spectator-accept");
+        t.setDaemon(true);
+        t.start();
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    static Sink socketSink(SocketChannel channel) {
+        return new Sink() {
+            @Override
+            public void write(ByteBuffer buf) throws IOException {
+                channel.write(buf);
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    static Sink fileSink(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new Sink() {
+            @Override
+            public void write(ByteBuffer buf) throws IOException {
+                channel.write(buf);
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    int subscribers() {
+        return subscriberCount;
+    }
+
+    long resyncs() {
+        return resyncs.sum();
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        synchronized (servers) {
+            for (ServerSocketChannel s : servers) {
+                try {
+                    s.close();
+                } catch (IOException ignored) {}
+            }
+        }
+        LockSupport.unpark(dispatcher);
+    }
+
+    /**
+     * Called on the engine's thread after every tick, and once before a
+     * match's first; a keyframe for a new match, a match that jumped (a
+     * restore) or one due, a TICK otherwise. Allocates nothing once the
+     * frame buffer has grown to the match's keyframes.
+     */
+    void publish(GameEngine m) {
+        boolean key = m != match || m.ticks != lastTick + 1 || m.ticks - lastKeyframeTick >= KEYFRAME_TICKS;
+        ByteBuffer b = key ? encodeKeyframe(m) : encodeTick(m);
+        for (int p = 0; p < m.players; p++) {
+            scores[p] = m.snake(p).score;
+            foods[p] = m.food(p);
+            running[p] = m.running[p];
+        }
+        match = m;
+        lastTick = m.ticks;
+        if (key) lastKeyframeTick = m.ticks;
+        append(b.flip(), key);
+    }
+
+    private ByteBuffer frame(int maxBytes) {
+        if (frame.capacity() < maxBytes) frame = ByteBuffer.allocate(Integer.highestOneBit(maxBytes - 1) << 1);
+        return frame.clear();
+    }
+
+    private ByteBuffer encodeKeyframe(GameEngine m) {
+        int bytes = 32;
+        for (int p = 0; p < m.players; p++) bytes += 26 + m.snake(p).length() / 4;
+        ByteBuffer b = frame(bytes);
+        b.put((byte) KEYFRAME);
+        Varint.write(b, m.ticks);
+        Varint.write(b, m.cols);
+        Varint.write(b, m.rows);
+        Varint.write(b, m.players);
+        b.put((byte) (m.shared ? 1 : 0));
+        for (int p = 0; p < m.players; p++) {
+            Snake s = m.snake(p);
+            b.put((byte) (m.running[p] ? 1 : 0));
+            Varint.write(b, s.score);
+            Varint.write(b, m.food(p) + 1);
+            Varint.write(b, s.length());
+            Varint.write(b, s.cell(0));
+            int packed = 0, n = 0;
+            for (int i = 1; i < s.length(); i++) {
+                packed |= direction(s.cell(i) - s.cell(i - 1), m.cols) << 2 * n;
+                if (++n == 4) {
+                    b.put((byte) packed);
+                    packed = n = 0;
+                }
+            }
+            if (n > 0) b.put((byte) packed);
+        }
+        return b;
+    }
+
+    private static int direction(int step, int cols) {
+        if (step == -cols) return Snake.UP;
+        if (step == cols) return Snake.DOWN;
+        return step < 0 ? Snake.LEFT : Snake.RIGHT;
+    }
+
+    private ByteBuffer encodeTick(GameEngine m) {
+        ByteBuffer b = frame(16 + m.players * 22);
+        b.put((byte) TICK);
+        Varint.write(b, m.ticks);
+        // counts never pass MAX_PLAYERS, so each is a one byte varint patched in afterwards
+        int countAt = b.position(), count = 0;
+        b.put((byte) 0);
+        for (int p = 0; p < m.players; p++) {
+            Snake s = m.snake(p);
+            int state = 0;
+            if (running[p]) { // only snakes that were still in play, and due, moved this tick
+                if (m.moving[p] && s.moved) state |= MOVED | s.heading() | (s.tailMoved ? TAIL_LEFT : 0);
+                if (!m.running[p]) state |= DIED;
+            }
+            if (s.score != scores[p]) state |= SCORED;
+            if (state == 0) continue;
+            Varint.write(b, p);
+            b.put((byte) state);
+            if ((state & SCORED) != 0) Varint.write(b, s.score);
+            count++;
+        }
+        b.put(countAt, (byte) count);
+        countAt = b.position();
+        count = 0;
+        b.put((byte) 0);
+        for (int p = 0; p < m.players; p++) {
+            if (m.food(p) == foods[p]) continue;
+            Varint.write(b, p);
+            Varint.write(b, m.food(p) + 1);
+            count++;
+        }
+        b.put(countAt, (byte) count);
+        return b;
+    }
+
+    private void append(ByteBuffer payload, boolean key) {
+        int length = payload.remaining();
+        long start = published, at = start;
+        long end = start + varintSize(length) + length;
+        claimed = end; // readers validate against this before trusting what they copied
+        // a volatile store alone lets the plain ring writes below move ahead of it; pairs with the readers' loadLoadFence
+        VarHandle.storeStoreFence();
+        for (long v = length; ; v >>>= 7) {
+            if ((v & ~0x7FL) == 0) {
+                ring[(int) (at++ & mask)] = (byte) v;
+                break;
+            }
+            ring[(int) (at++ & mask)] = (byte) (v & 0x7F | 0x80);
+        }
+        int offset = (int) (at & mask), first = Math.min(length, ring.length - offset);
+        payload.get(ring, offset, first);
+        payload.get(ring, 0, length - first);
+        published = end;
+        if (key) lastKeyframe = start;
+        LockSupport.unpark(dispatcher);
+    }
+
+    private static int varintSize(long v) {
+        int n = 1;
+        while ((v & ~0x7FL) != 0) {
+            v >>>= 7;
+            n++;
+        }
+        return n;
+    }
+
+    private void dispatch() {
+        while (open) {
+            Subscriber s;
+            while ((s = incoming.poll()) != null) subscribers.add(s);
+            long seen = published;
+            boolean backlog = false;
+            for (int i = subscribers.size() - 1; i >= 0; i--) {
+                s = subscribers.get(i);
+                try {
+                    backlog |= pump(s);
+                } catch (IOException e) {
+                    drop(i);
+                }
+            }
+            subscriberCount = subscribers.size();
+            // woken by the next publish; a sink that couldn't take everything is retried soon
+            if (published == seen && incoming.isEmpty()) LockSupport.parkNanos(this, backlog ? 1_000_000 : 100_000_000);
+        }
+        for (int i = subscribers.size() - 1; i >= 0; i--) drop(i);
+    }
+
+    private void drop(int i) {
+        Subscriber s = subscribers.remove(i);
+        dropped.increment();
+        try {
+            s.sink.close();
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * Moves whole frames the subscriber hasn't had yet into its buffer, then
+     * lets its sink take what it will; true if some of the buffer is left over.
+     */
+    private boolean pump(Subscriber s) throws IOException {
+        long end = published;
+        if (s.cursor < 0) s.cursor = lastKeyframe;
+        while (s.cursor >= 0 && s.cursor < end) {
+            if (claimed - s.cursor > ring.length) {
+                resync(s);
+                continue;
+            }
+            long at = s.cursor;
+            int length = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = ring[(int) (at++ & mask)];
+                length |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) break;
+            }
+            int total = (int) (at - s.cursor) + length;
+            if (length <= 0 || total > end - s.cursor) { // torn by the publisher lapping us
+                resync(s);
+                continue;
+            }
+            if (s.out.remaining() < total) {
+                if (s.out.position() > 0) break; // let the sink catch up first
+                s.out = ByteBuffer.allocate(Integer.highestOneBit(total - 1) << 1);
+            }
+            int mark = s.out.position(), offset = (int) (s.cursor & mask), first = Math.min(total, ring.length - offset);
+            s.out.put(ring, offset, first).put(ring, 0, total - first);
+            // the copy must be complete before checking it wasn't overwritten meanwhile
+            VarHandle.loadLoadFence();
+            if (claimed - s.cursor > ring.length) {
+                s.out.position(mark);
+                resync(s);
+                continue;
+            }
+            s.cursor += total;
+        }
+        long now = System.nanoTime();
+        if (s.out.position() == 0) {
+            s.lastProgress = now;
+            return false;
+        }
+        s.out.flip();
+        int before = s.out.remaining();
+        s.sink.write(s.out);
+        if (s.out.remaining() < before) {
+            s.stalls = 0;
+            s.lastProgress = now;
+        }
+        s.out.compact();
+        if (now - s.lastProgress > MAX_STALL_NANOS) throw new IOException("spectator stopped reading");
+        return s.out.position() > 0;
+    }
+
+    private void resync(Subscriber s) throws IOException {
+        resyncs.increment();
+        if (++s.stalls > MAX_STALLED_RESYNCS) throw new IOException("spectator too slow to follow");
+        s.cursor = lastKeyframe;
+    }
+
+    private static final class Subscriber {
+        final Sink sink;
+        ByteBuffer out = ByteBuffer.allocate(OUT_BUFFER);
+        long cursor = -1; // ring position of the next frame to send, -1 until the first keyframe
+        int stalls;
+        long lastProgress = System.nanoTime();
+
+        Subscriber(Sink sink) {
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package snakegame;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * A spectator's copy of a match, rebuilt from a {@link SpectatorFeed}
+ * stream: every player's body, score, food and whether they are still in
+ * play. Nothing is known until the first keyframe; a TICK that doesn't
+ * follow the last one (frames lost to a resync) is ignored until the next
+ * keyframe puts the view back in step.
+ *
+ * <p>Run with {@code java -cp game.jar snakegame.SpectatorView host:port|file}
+ * to follow a feed and print the scores as it goes.
+ */
+final class SpectatorView {
+    int cols, rows, players;
+    boolean shared;
+    long tick = -1; // -1 until the first keyframe
+    boolean inStep;
+
+    int[] scores = new int[0], foods = new int[0];
+    boolean[] running = new boolean[0];
+    // each body as a ring of cells, segment 0 at heads[p]
+    private int[][] bodies = new int[0][];
+    private int[] heads = new int[0], lengths = new int[0];
+
+    /** Applies one frame (its type byte onwards); false if it was a TICK the view couldn't use. */
+    boolean apply(ByteBuffer frame) {
+        int type = frame.get();
+        if (type == SpectatorFeed.KEYFRAME) {
+            keyframe(frame);
+            return true;
+        }
+        if (type != SpectatorFeed.TICK) throw new IllegalArgumentException("frame type " + type);
+        long t = Varint.read(frame);
+        if (!inStep || t != tick + 1) {
+            inStep = false;
+            return false;
+        }
+        tick = t;
+        for (int n = (int) Varint.read(frame); n > 0; n--) {
+            int p = (int) Varint.read(frame), state = frame.get();
+            if ((state & SpectatorFeed.MOVED) != 0) {
+                int dir = state & SpectatorFeed.DIR_MASK;
+                if ((state & SpectatorFeed.TAIL_LEFT) == 0) makeRoom(p);
+                else lengths[p]--;
+                int head = cell(p, 0);
+                addHead(p, head + Snake.DY[dir] * cols + Snake.DX[dir]);
+            }
+            if ((state & SpectatorFeed.SCORED) != 0) scores[p] = (int) Varint.read(frame);
+            if ((state & SpectatorFeed.DIED) != 0) running[p] = false;
+        }
+        for (int n = (int) Varint.read(frame); n > 0; n--) {
+            int p = (int) Varint.read(frame);
+            foods[p] = (int) Varint.read(frame) - 1;
+        }
+        return true;
+    }
+
+    private void keyframe(ByteBuffer frame) {
+        tick = Varint.read(frame);
+        cols = (int) Varint.read(frame);
+        rows = (int) Varint.read(frame);
+        int n = (int) Varint.read(frame);
+        if (n != players) {
+            players = n;
+            scores = new int[n];
+            foods = new int[n];
+            running = new boolean[n];
+            bodies = new int[n][16];
+            heads = new int[n];
+            lengths = new int[n];
+        }
+        shared = frame.get() != 0;
+        for (int p = 0; p < players; p++) {
+            running[p] = frame.get() != 0;
+            scores[p] = (int) Varint.read(frame);
+            foods[p] = (int) Varint.read(frame) - 1;
+            int length = (int) Varint.read(frame);
+            int cell = (int) Varint.read(frame);
+            if (bodies[p].length < length) bodies[p] = new int[Integer.highestOneBit(length - 1) << 1];
+            heads[p] = 0;
+            lengths[p] = length;
+            bodies[p][0] = cell;
+            int packed = 0;
+            for (int i = 1; i < length; i++) {
+                if ((i - 1) % 4 == 0) packed = frame.get();
+                int dir = packed >> 2 * ((i - 1) % 4) & 3;
+                cell += Snake.DY[dir] * cols + Snake.DX[dir];
+                bodies[p][i] = cell;
+            }
+        }
+        inStep = true;
+    }
+
+    // a snake that grows keeps its tail, so its ring may need room for one more segment
+    private void makeRoom(int p) {
+        int[] body = bodies[p];
+        if (lengths[p] == body.length) {
+            int[] bigger = new int[body.length * 2];
+            for (int i = 0; i < lengths[p]; i++) bigger[i] = cell(p, i);
+            bodies[p] = bigger;
+            heads[p] = 0;
+        }
+    }
+
+    private void addHead(int p, int cell) {
+        int[] body = bodies[p];
+        heads[p] = (heads[p] - 1) & (body.length - 1);
+        body[heads[p]] = cell;
+        lengths[p]++;
+    }
+
+    int length(int p) {
+        return lengths[p];
+    }
+
+    int cell(int p, int i) {
+        return bodies[p][(heads[p] + i) & (bodies[p].length - 1)];
+    }
+
+    /** Reads frames until the stream ends, calling onFrame after each. */
+    static void follow(InputStream in, SpectatorView view, Runnable onFrame) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        byte[] buf = new byte[4096];
+        while (true) {
+            int length;
+            try {
+                length = (int) Varint.read(data);
+            } catch (EOFException e) {
+                return;
+            }
+            if (buf.length < length) buf = new byte[Integer.highestOneBit(length - 1) << 1];
+            data.readFully(buf, 0, length);
+            view.apply(ByteBuffer.wrap(buf, 0, length));
+            onFrame.run();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: SpectatorView host:port | file");
+            System.exit(2);
+        }
+        String source = args[0];
+        int colon = source.lastIndexOf(':');
+        InputStream in = colon > 0 && !Files.exists(Paths.get(source))
+                ? new Socket(source.substring(0, colon), Integer.parseInt(source.substring(colon + 1))).getInputStream()
+                : Files.newInputStream(Paths.get(source));
+        SpectatorView view = new SpectatorView();
+        long[] lastPrint = {0};
+        follow(in, view, () -> {
+            long now = System.nanoTime();
+            if (now - lastPrint[0] < 1_000_000_000L || view.tick < 0) return;
+            lastPrint[0] = now;
+            view.print();
+        });
+        if (view.tick >= 0) view.print();
+    }
+
+    private void print() {
+        StringBuilder sb = new StringBuilder("tick ").append(tick);
+        int alive = 0;
+        for (int p = 0; p < players; p++) {
+            sb.append("  P").append(p + 1).append(' ').append(scores[p]).append(running[p] ? "" : "x");
+            if (running[p]) alive++;
+        }
+        System.out.println(sb.append("  (").append(alive).append('/').append(players).append(" alive)"));
+    }
+}
@@ -0,0 +1,102 @@
+package snakegame;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Every player's sprites, rendered once into two compatible images: an
+ * opaque one holding a strip of body cells and a head per player, and a
+ * translucent one holding each player's food orb in every frame of its glow
+ * animation. Drawing a body run, an end or an orb is then a single blit
+ * from one of the two, whatever the length of the run, and blits from the
+ * same image batch well on accelerated pipelines; the opaque sheet stays a
+ * plain copy even on the software one.
+ *
+ * <p>Row p of each sheet belongs to player p.
+ */
+final class SpriteAtlas {
+    static final int GLOW_FRAMES = 16;
+    // how far the widest glow reaches past the orb on each side
+    static final int GLOW_REACH = 3;
+
+    final int players;
+    private final int cell, headSize, orbSize, stripCells;
+    private final int rowHeight, headX, orbSlot;
+    private final BufferedImage solid, glow;
+
+    /**
+     * @param stripCells the longest body run a single blit can draw; longer
+     *                   runs take one blit per strip
+     */
+    SpriteAtlas(GraphicsConfiguration gc, int players, int cell, int headSize, int orbSize, int stripCells,
+                Color[] body, Color[] head, Color[] food, Color[] foodGlow) {
+        this.players = players;
+        this.cell = cell;
+        this.headSize = headSize;
+        this.orbSize = orbSize;
+        this.stripCells = stripCells;
+        this.rowHeight = Math.max(cell, headSize);
+        this.headX = stripCells * cell;
+        this.orbSlot = orbSize + 2 * GLOW_REACH;
+
+        solid = image(gc, headX + headSize, rowHeight * players, Transparency.OPAQUE);
+        Graphics2D g2 = solid.createGraphics();
+        for (int p = 0; p < players; p++) {
+            g2.setColor(body[p]);
+            g2.fillRect(0, p * rowHeight, headX, cell);
+            g2.setColor(head[p]);
+            g2.fillRect(headX, p * rowHeight, headSize, headSize);
+        }
+        g2.dispose();
+
+        glow = image(gc, orbSlot * GLOW_FRAMES, orbSlot * players, Transparency.TRANSLUCENT);
+        g2 = glow.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        for (int p = 0; p < players; p++) {
+            for (int f = 0; f < GLOW_FRAMES; f++) drawOrb(g2, f * orbSlot, p * orbSlot, f, food[p], foodGlow[p]);
+        }
+        g2.dispose();
+    }
+
+    private static BufferedImage image(GraphicsConfiguration gc, int w, int h, int transparency) {
+        if (gc != null) return gc.createCompatibleImage(w, h, transparency);
+        return new BufferedImage(w, h, transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    // frame 0 is the still orb: the core with a two pixel halo; the rest pulse the halo out to GLOW_REACH and back
+    private void drawOrb(Graphics2D g2, int slotX, int slotY, int frame, Color color, Color glowColor) {
+        double phase = (1 - Math.cos(2 * Math.PI * frame / GLOW_FRAMES)) / 2; // 0 at frame 0, 1 half way round
+        double reach = 2 + (GLOW_REACH - 2) * phase;
+        int alpha = (int) Math.round(glowColor.getAlpha() * (1 - 0.5 * phase));
+        int x = slotX + GLOW_REACH, y = slotY + GLOW_REACH;
+        g2.setColor(color);
+        g2.fillOval(x, y, orbSize, orbSize);
+        g2.setColor(new Color(glowColor.getRGB() & 0xFFFFFF | alpha << 24, true));
+        g2.fill(new Ellipse2D.Double(x - reach, y - reach, orbSize + 2 * reach, orbSize + 2 * reach));
+    }
+
+    /** A horizontal run of body cells starting at x, y. */
+    void drawBody(Graphics2D g2, int player, int x, int y, int cells) {
+        int sy = player * rowHeight;
+        while (cells > 0) {
+            int n = Math.min(cells, stripCells), w = n * cell;
+            g2.drawImage(solid, x, y, x + w, y + cell, 0, sy, w, sy + cell, null);
+            x += w;
+            cells -= n;
+        }
+    }
+
+    void drawHead(Graphics2D g2, int player, int x, int y) {
+        int sy = player * rowHeight;
+        g2.drawImage(solid, x, y, x + headSize, y + headSize, headX, sy, headX + headSize, sy + headSize, null);
+    }
+
+    /** The player's food orb with its top left at x, y, in the given frame of the glow animation. */
+    void drawOrb(Graphics2D g2, int player, int x, int y, int frame) {
+        int sx = frame * orbSlot, sy = player * orbSlot;
+        x -= GLOW_REACH;
+        y -= GLOW_REACH;
+        g2.drawImage(glow, x, y, x + orbSlot, y + orbSlot, sx, sy, sx + orbSlot, sy + orbSlot, null);
+    }
+}
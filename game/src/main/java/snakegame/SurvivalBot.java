@@ -0,0 +1,12 @@
+package snakegame;
+
+/** Always moves towards the most open space (by flood fill), and only then towards food. */
+final class SurvivalBot implements SnakeController {
+    @Override
+    public int nextDirection(GameEngine match, int player) {
+        Snake s = match.snake(player);
+        BoardSearch search = BoardSearch.forThread();
+        int dir = search.roomiest(s, match.food(player));
+        return dir == Snake.NONE ? Snake.NONE : BoardSearch.asTurn(s, dir);
+    }
+}
@@ -0,0 +1,128 @@
+package snakegame;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pre-rasterized text: each string is laid out and antialiased once per font
+ * and color into a small translucent image, and afterwards drawn as a blit.
+ * The least recently drawn images are evicted once there are more than the
+ * capacity, so text that changes (scores, the countdown) only ever costs a
+ * layout when its value does.
+ *
+ * <p>Not thread-safe; the panel only paints from one thread at a time.
+ */
+final class TextCache {
+    // room around the advance for glyphs (emoji, italics) that overhang it
+    private static final int PAD = 4;
+
+    private static final class Key {
+        String text;
+        Font font;
+        Color color;
+
+        Key(String text, Font font, Color color) {
+            set(text, font, color);
+        }
+
+        void set(String text, Font font, Color color) {
+            this.text = text;
+            this.font = font;
+            this.color = color;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && text.equals(k.text) && font.equals(k.font) && color.equals(k.color);
+        }
+
+        @Override
+        public int hashCode() {
+            return (text.hashCode() * 31 + font.hashCode()) * 31 + color.getRGB();
+        }
+    }
+
+    private static final class Entry {
+        final BufferedImage image;
+        final int dx, dy; // where the image's top left sits relative to the text's origin
+
+        Entry(BufferedImage image, int dx, int dy) {
+            this.image = image;
+            this.dx = dx;
+            this.dy = dy;
+        }
+    }
+
+    private final Map<Key, Entry> entries;
+    // reused for lookups so a hit doesn't allocate
+    private final Key probe = new Key(null, null, null);
+
+    TextCache(int capacity) {
+        entries = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Draws text with its baseline starting at x, y, as Graphics.drawString would. */
+    void draw(Graphics2D g2, String text, Font font, Color color, int x, int y) {
+        Entry e = entry(text, font, color, g2.getDeviceConfiguration());
+        if (e.image != null) g2.drawImage(e.image, x + e.dx, y + e.dy, null);
+    }
+
+    private Entry entry(String text, Font font, Color color, GraphicsConfiguration gc) {
+        probe.set(text, font, color);
+        Entry e = entries.get(probe);
+        probe.set(null, null, null);
+        if (e == null) {
+            e = rasterize(text, font, color, gc);
+            entries.put(new Key(text, font, color), e);
+        }
+        return e;
+    }
+
+    // drawn with room to spare, then cropped to the pixels the text actually covers, so a blit touches no more than drawString would
+    private static Entry rasterize(String text, Font font, Color color, GraphicsConfiguration gc) {
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D sg = scratch.createGraphics();
+        FontMetrics fm = sg.getFontMetrics(font);
+        int ascent = fm.getAscent() + PAD;
+        int w = Math.max(1, fm.stringWidth(text)) + 2 * PAD, h = ascent + fm.getDescent() + PAD;
+        sg.dispose();
+
+        BufferedImage ink = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2 = ink.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setFont(font);
+        g2.setColor(color);
+        g2.drawString(text, PAD, ascent);
+        g2.dispose();
+
+        int x0 = w, y0 = h, x1 = -1, y1 = -1;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                if (ink.getRGB(x, y) >>> 24 == 0) continue;
+                x0 = Math.min(x0, x);
+                x1 = Math.max(x1, x);
+                y0 = Math.min(y0, y);
+                y1 = Math.max(y1, y);
+            }
+        }
+        if (x1 < 0) return new Entry(null, 0, 0); // nothing but spaces
+
+        int cw = x1 - x0 + 1, ch = y1 - y0 + 1;
+        BufferedImage image = gc != null
+                ? gc.createCompatibleImage(cw, ch, Transparency.TRANSLUCENT)
+                : new BufferedImage(cw, ch, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D ig = image.createGraphics();
+        ig.setComposite(AlphaComposite.Src);
+        ig.drawImage(ink, -x0, -y0, null);
+        ig.dispose();
+        return new Entry(image, x0 - PAD, y0 - ascent);
+    }
+}
@@ -0,0 +1,1376 @@
+package snakegame;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Random;
+
+public class TwoPlayerSnake extends JPanel implements KeyListener {
+    private final int WIDTH = 1000;
+    private final int HEIGHT = 600;
+    private final int CELL_SIZE = 20;
+    private final int COLS = WIDTH / CELL_SIZE;
+    private final int ROWS = HEIGHT / CELL_SIZE;
+
+    private final int FRAME_DELAY = 15;
+    private final Color P1_BODY = new Color(0x00BFFF), P1_HEAD = new Color(0x33FFFF);
+    private final Color P2_BODY = new Color(0xFF2D95), P2_HEAD = new Color(0xFF66CC);
+    private final int HEAD_SIZE = (int) (CELL_SIZE * 1.1);
+    private final int HUD_HEIGHT = 70; // score line plus the high score banner
+
+    // fonts and colors are built once rather than on every frame
+    private final Font HUD_FONT = new Font("Arial", Font.PLAIN, 14);
+    private final Font TITLE_FONT = new Font("Arial", Font.BOLD, 48);
+    private final Font COUNTDOWN_FONT = new Font("Arial", Font.BOLD, 40);
+    private final Font PAUSED_FONT = new Font("Arial", Font.BOLD, 36);
+    private final Font LOST_FONT = new Font("Arial", Font.BOLD, 28);
+    private final Font BANNER_FONT = new Font("Arial", Font.BOLD, 24);
+    private final Font SUMMARY_TITLE_FONT = new Font("Arial", Font.BOLD, 22);
+    private final Font SUMMARY_FONT = new Font("Arial", Font.PLAIN, 18);
+    private final Font RESULT_FONT = new Font("Arial", Font.BOLD, 20);
+    private final Font HINT_FONT = new Font("Arial", Font.ITALIC, 16);
+    private final Color DIVIDER_COLOR = new Color(120, 120, 120, 120);
+    private final Color SUMMARY_BOX_COLOR = new Color(0, 0, 0, 180);
+    // HUD, countdown, banner and summary text is blitted from pre-rasterized images
+    private final TextCache text = new TextCache(96);
+    // ...and built only when a value it shows changes, so steady frames neither format nor lay out text
+    private final int[] hudScore = new int[2], hudHigh = new int[2];
+    private final String[] hudLines = new String[2];
+    private int hudAlive, hudPlayers, shownCountdown;
+    private String aliveLine, countdownLine;
+    private final String[] lostLines = new String[GameEngine.MAX_PLAYERS];
+    private GameEngine summaryOf;
+    private long summaryTicks;
+    private String summaryLine1, summaryLine2, resultLine;
+    private final Font METRICS_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private final Color METRICS_BOX_COLOR = new Color(0, 0, 0, 200);
+    private final int METRICS_BOX_WIDTH = 360, METRICS_BOX_HEIGHT = 139;
+    private final Color FOOD1_COLOR = new Color(0x00E5FF), FOOD1_GLOW = new Color(0x00, 0xE5, 0xFF, 120);
+    private final Color FOOD2_COLOR = new Color(0xFF33CC), FOOD2_GLOW = new Color(0xFF, 0x33, 0xCC, 120);
+    // per player: the two classic colors, then hues spread around the wheel for any extra snakes
+    private final Color[] BODY = new Color[GameEngine.MAX_PLAYERS], HEAD = new Color[GameEngine.MAX_PLAYERS];
+    private final Color[] FOOD = new Color[GameEngine.MAX_PLAYERS], FOOD_GLOW = new Color[GameEngine.MAX_PLAYERS];
+    private final int ORB_SIZE = 12;
+    private final long GLOW_FRAME_NANOS = 1_000_000_000L / SpriteAtlas.GLOW_FRAMES; // one pulse a second
+
+    // one clock drives the match's frames and every animation; updateClock() runs just the tasks the screen needs
+    private final FrameClock clock = new FrameClock();
+    private final FrameClock.Task frameTask, countdownTask, fadeTask, netTask, starTask, blinkTask, introTask, metricsTask;
+    // with no input for this long, a screen without a match in play stops its ambient animations
+    private final long IDLE_NANOS = 30_000_000_000L;
+    private long lastInputNanos = System.nanoTime();
+    // any input wakes idle animations back up
+    private final MouseAdapter nudge = new MouseAdapter() {
+        @Override public void mousePressed(MouseEvent e) { noteInput(); }
+        @Override public void mouseMoved(MouseEvent e) { noteInput(); }
+    };
+    private Window watchedWindow;
+    private boolean iconified;
+    private volatile boolean framesRunning; // read by the render thread
+    private long shownWakeups;
+    private int wakeupRate; // per second, for the metrics overlay
+    private Random random = new Random();
+
+    // all match rules live in the engine; the panel only feeds it input and draws it
+    private GameEngine engine;
+    private boolean attached; // the match came from attach(), and whoever attached it drives it
+    private long lastFrameNanos;
+
+    // optional BufferStrategy renderer; frameLock orders engine and intro snake
+    // updates on the EDT against its thread (plain UI flags may show a frame late)
+    private ActiveRenderer activeRenderer;
+    private final Object frameLock = new Object();
+
+    // set when playing against a SnakeServer; engine is then the client's predicted match
+    private NetClient net;
+    private boolean waitingForOpponent = false;
+
+    // built-in bot steering each player in local matches, or null for the keyboard
+    private final String[] bots = new String[2];
+    private final String EXTRA_BOT = "survival"; // steers every player past the two on the keyboard; cheap on any board
+
+    // local match setup; boards bigger than the window scroll to follow the local snake
+    private int boardCols = COLS, boardRows = ROWS, playerCount = 2;
+    private boolean sharedBoard = false;
+    // top-left of the window in board pixels; 0, 0 whenever the board fits
+    private int viewX, viewY;
+    private int[] lastFoods = new int[0];
+
+    // local matches are published here for spectators when set (--spectate, --spectate-file)
+    private SpectatorFeed spectators;
+
+    // tick, paint and frame timings; F3 shows the last window over the game
+    final Metrics metrics = new Metrics();
+    private boolean showMetrics = false;
+
+    private boolean paused = false;
+    private boolean countingDown = false;
+    private int countdown = 3;
+
+    private final String SCORE_FILE = "highscores.txt"; // pre-log format, imported once
+    private final String SCORE_LOG = "scores.log";
+    private final ScoreStore scores;
+    private final String MATCH_INDEX = "matches.db";
+    private MatchIndex matches; // every finished match, for all-time ranks; null if it couldn't be opened
+    private final String REPLAY_DIR = "replays";
+    // false keeps scores in memory and opens no match index or replay files, for panels that aren't the game's own
+    private final boolean persistent;
+    private ReplayWriter replay; // recording of the current match, if the file could be opened
+    private boolean showHighScore1 = false, showHighScore2 = false;
+    private boolean blinkState = true;
+    private float fadeAlpha = 0f;
+
+    private boolean intro = true;
+    private ArrayList<Star> stars = new ArrayList<>();
+    private boolean starsBright = true;
+    private JButton startButton, changeBgButton, resetScoreButton; // null until startup is finished
+    private int currentBackground = 0; // 0=dark gradient,1=dark solid,2=orange morning
+
+    // intro snakes
+    private Snake introSnake1, introSnake2;
+    private int introDir1 = 1, introDir2 = -1;
+
+    // pre-rendered layers: the theme background and the stars in both twinkle states
+    private VolatileImage backgroundImage;
+    private int backgroundImageTheme = -1;
+    private BufferedImage brightStars, dimStars;
+    // every snake and food sprite, built for the first frame that needs it
+    private SpriteAtlas sprites;
+    // food glows pulse when set; either way an orb is one blit of a pre-rendered frame
+    private boolean animateGlow = false;
+    private int lastGlowFrame;
+
+    // head and tail spans drawn by the previous frame, so the next one can repaint just those
+    private final Rectangle[] lastSpans = {new Rectangle(), new Rectangle(), new Rectangle(), new Rectangle()};
+    private final Rectangle span = new Rectangle();
+
+    // the first frame only needs the background and the title; everything else waits for it to be drawn
+    private long mainNanos = System.nanoTime(); // main sets this on entry, for the time-to-first-frame report
+    private volatile boolean firstFrameDrawn;
+    private boolean startupFinished;
+
+    public TwoPlayerSnake() {
+        this(true);
+    }
+
+    TwoPlayerSnake(boolean persistent) {
+        this.persistent = persistent;
+        setPreferredSize(new Dimension(WIDTH, HEIGHT));
+        setFocusable(true);
+        setLayout(null);
+        addKeyListener(this);
+        initPalette();
+
+        // the HUD shows "..." for the high scores until they are in
+        scores = persistent
+                ? ScoreStore.openInBackground(Paths.get(SCORE_LOG), Paths.get(SCORE_FILE), () -> repaint(0, 0, WIDTH, HUD_HEIGHT))
+                : ScoreStore.inMemory();
+
+        frameTask = clock.add(FRAME_DELAY, this::frame);
+        countdownTask = clock.add(1000, this::countDown);
+        fadeTask = clock.add(50, this::fade);
+        netTask = clock.add(FRAME_DELAY, this::pollNetwork);
+        starTask = clock.add(80, this::twinkle);
+        blinkTask = clock.add(400, this::blink);
+        introTask = clock.add(150, this::moveIntroSnakes);
+        metricsTask = clock.add(500, this::refreshMetrics);
+
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & (HierarchyEvent.SHOWING_CHANGED | HierarchyEvent.PARENT_CHANGED)) != 0) visibilityChanged();
+        });
+        addMouseListener(nudge);
+        addMouseMotionListener(nudge);
+    }
+
+    private void noteInput() {
+        boolean wasIdle = idle();
+        lastInputNanos = System.nanoTime();
+        if (wasIdle) updateClock();
+    }
+
+    private boolean playing() {
+        return engine != null && !attached && !intro && !paused && !countingDown && !waitingForOpponent && !engine.gameOver;
+    }
+
+    private boolean idle() {
+        return !playing() && System.nanoTime() - lastInputNanos >= IDLE_NANOS;
+    }
+
+    /**
+     * Runs exactly the clock tasks the screen needs: frames while a match is
+     * in play, and the ambient animations (twinkling stars, the intro snakes,
+     * the high score banner) while they are on screen and someone is about.
+     * An idle intro, pause or game over screen stops waking up altogether.
+     * Call after any change to the state playing() or the animations look at.
+     */
+    private void updateClock() {
+        boolean playing = playing();
+        if (playing && !frameTask.active()) lastFrameNanos = System.nanoTime();
+        if (!playing && frameTask.active()) metrics.framesPaused();
+        frameTask.run(playing);
+        boolean awake = !idle();
+        starTask.run(awake && currentBackground != 2 && !stars.isEmpty());
+        introTask.run(awake && intro && introSnake1 != null);
+        blinkTask.run(awake && !intro && (showHighScore1 || showHighScore2));
+        if (!blinkTask.active() && !blinkState) {
+            blinkState = true; // a banner that stops blinking stays up
+            repaint(0, 0, WIDTH, HUD_HEIGHT);
+        }
+        framesRunning = frameTask.active() && !clock.suspended();
+        if (activeRenderer != null) activeRenderer.wake();
+    }
+
+    /**
+     * Nothing animates while the window is hidden or minimized, and a local
+     * match in play pauses; a network match keeps going, as the server does.
+     */
+    private void visibilityChanged() {
+        Window w = SwingUtilities.getWindowAncestor(this);
+        if (w != null && w != watchedWindow) {
+            watchedWindow = w;
+            w.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowIconified(WindowEvent e) {
+                    iconified = true;
+                    visibilityChanged();
+                }
+
+                @Override
+                public void windowDeiconified(WindowEvent e) {
+                    iconified = false;
+                    visibilityChanged();
+                    noteInput();
+                }
+            });
+        }
+        boolean hidden = !isShowing() || iconified;
+        boolean online = net != null && (waitingForOpponent || playing());
+        if (hidden && !online && playing()) paused = true;
+        clock.suspend(hidden && !online);
+        updateClock();
+    }
+
+    /** Frames are only needed continuously while a match is in play; otherwise the render thread waits for a repaint. */
+    boolean framesRunning() {
+        return framesRunning;
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        super.repaint(tm, x, y, width, height);
+        if (activeRenderer != null) activeRenderer.wake(); // the canvas covers the panel
+    }
+
+    /** Reports the first frame and queues the rest of startup behind it; call from whichever thread drew it. */
+    private void onFirstFrame() {
+        firstFrameDrawn = true;
+        metrics.firstFrame(mainNanos);
+        SwingUtilities.invokeLater(this::finishStartup);
+    }
+
+    /** The intro's stars, snakes, buttons and timers, and the match index: everything the first frame went without. */
+    private void finishStartup() {
+        if (startupFinished) return;
+        startupFinished = true;
+        // the index is only needed when a match ends, so it opens off the EDT
+        if (persistent) {
+            Thread opener = new Thread(() -> {
+                try {
+                    MatchIndex index = MatchIndex.open(Paths.get(MATCH_INDEX));
+                    SwingUtilities.invokeLater(() -> matches = index);
+                } catch (IOException e) {
+                    System.err.println(MATCH_INDEX + ": not recording matches: " + e);
+                }
+            }, "match-index");
+            opener.setDaemon(true);
+            opener.start();
+        }
+        synchronized (frameLock) {
+            initStars();
+            initIntroSnakes();
+        }
+
+        // Buttons
+        startButton = new JButton("START GAME");
+        changeBgButton = new JButton("Change Background");
+        resetScoreButton = new JButton("Reset High Scores");
+
+        startButton.setBounds(WIDTH / 2 - 80, HEIGHT / 2 + 30, 160, 40);
+        changeBgButton.setBounds(WIDTH / 2 - 100, HEIGHT / 2 + 80, 200, 32);
+        resetScoreButton.setBounds(WIDTH / 2 - 100, HEIGHT / 2 + 120, 200, 32);
+
+        startButton.setFocusPainted(false);
+        changeBgButton.setFocusPainted(false);
+        resetScoreButton.setFocusPainted(false);
+
+        startButton.addActionListener(e -> {
+            leaveIntro();
+            requestFocusInWindow();
+            startMatch();
+        });
+
+        changeBgButton.addActionListener(e -> {
+            chooseBackground();
+        });
+
+        resetScoreButton.addActionListener(e -> {
+            resetHighScores();
+        });
+
+        // index 0 keeps the buttons above the active-rendering canvas
+        if (intro) {
+            add(startButton, 0);
+            add(changeBgButton, 0);
+            add(resetScoreButton, 0);
+        }
+
+        updateClock();
+        repaint();
+    }
+
+    private void twinkle() {
+        if (idle()) {
+            updateClock();
+            return;
+        }
+        starsBright = !starsBright;
+        repaint();
+    }
+
+    // the high score banner
+    private void blink() {
+        if (idle()) {
+            updateClock();
+            return;
+        }
+        blinkState = !blinkState;
+        repaint(0, 0, WIDTH, HUD_HEIGHT);
+    }
+
+    private void moveIntroSnakes() {
+        if (idle()) {
+            updateClock();
+            return;
+        }
+        synchronized (frameLock) {
+            int x1 = introSnake1.headX() + introDir1;
+            if (x1 > COLS / 2 - 4 || x1 < 0) introDir1 *= -1;
+            introSnake1.slide(introSnake1.headX() + introDir1, introSnake1.headY());
+            int x2 = introSnake2.headX() + introDir2;
+            if (x2 < COLS / 2 || x2 > COLS - 4) introDir2 *= -1;
+            introSnake2.slide(introSnake2.headX() + introDir2, introSnake2.headY());
+        }
+        repaint(0, introSnake1.headY() * CELL_SIZE, WIDTH, HEAD_SIZE);
+        repaint(0, introSnake2.headY() * CELL_SIZE, WIDTH, HEAD_SIZE);
+    }
+
+    private void leaveIntro() {
+        intro = false;
+        if (startButton == null) return;
+        remove(startButton);
+        remove(changeBgButton);
+        remove(resetScoreButton);
+    }
+
+    /**
+     * Shows a match that is already under way, skipping the intro and countdown.
+     * Used to render engines driven from outside the panel (benchmarks, replays).
+     */
+    void attach(GameEngine match) {
+        if (intro) leaveIntro();
+        countdownTask.stop();
+        countingDown = false;
+        paused = false;
+        attached = true;
+        match.metrics = metrics;
+        synchronized (frameLock) {
+            engine = match;
+        }
+        lastFoods = new int[match.players];
+        updateClock();
+    }
+
+    private void chooseBackground() {
+        String[] options = {"Dark Gradient", "Dark Solid", "Orange Morning"};
+        int choice = JOptionPane.showOptionDialog(
+                this,
+                "Select Background Theme",
+                "Background Selection",
+                JOptionPane.DEFAULT_OPTION,
+                JOptionPane.INFORMATION_MESSAGE,
+                null,
+                options,
+                options[0]
+        );
+        if (choice >= 0) currentBackground = choice;
+        updateClock();
+        repaint();
+    }
+
+    private void resetHighScores() {
+        int confirm = JOptionPane.showConfirmDialog(
+                this,
+                "Are you sure you want to reset high scores?",
+                "Reset High Scores",
+                JOptionPane.YES_NO_OPTION
+        );
+        if (confirm == JOptionPane.YES_OPTION) {
+            scores.resetHighScores();
+        }
+    }
+
+    private void initIntroSnakes() {
+        introSnake1 = new Snake(4, ROWS / 2 - 4, 0, COLS / 2, COLS, ROWS, 0, null, (short) 1);
+        introSnake2 = new Snake(COLS - 5, ROWS / 2 + 4, COLS / 2, COLS, COLS, ROWS, 0, null, (short) 2);
+    }
+
+    private void initPalette() {
+        BODY[0] = P1_BODY; HEAD[0] = P1_HEAD; FOOD[0] = FOOD1_COLOR; FOOD_GLOW[0] = FOOD1_GLOW;
+        BODY[1] = P2_BODY; HEAD[1] = P2_HEAD; FOOD[1] = FOOD2_COLOR; FOOD_GLOW[1] = FOOD2_GLOW;
+        for (int p = 2; p < BODY.length; p++) {
+            float hue = (0.1f + p * 0.618034f) % 1f; // golden-ratio steps keep neighbours apart
+            BODY[p] = Color.getHSBColor(hue, 0.75f, 0.95f);
+            HEAD[p] = Color.getHSBColor(hue, 0.45f, 1f);
+            FOOD[p] = Color.getHSBColor(hue, 0.8f, 1f);
+            FOOD_GLOW[p] = new Color(FOOD[p].getRGB() & 0xFFFFFF | 120 << 24, true);
+        }
+    }
+
+    private void initStars() {
+        stars.clear();
+        brightStars = null;
+        dimStars = null;
+        for (int i = 0; i < 160; i++) stars.add(new Star(random.nextInt(WIDTH), random.nextInt(HEIGHT), random.nextInt(3) + 1));
+    }
+
+    private void startMatch() {
+        if (net != null) joinNetworkMatch();
+        else initGame();
+    }
+
+    private void initGame() {
+        long seed = random.nextLong();
+        GameEngine next = new GameEngine(boardCols, boardRows, playerCount, sharedBoard, seed);
+        for (int p = 0; p < playerCount; p++) {
+            String bot = p < 2 ? bots[p] : EXTRA_BOT;
+            if (bot != null) next.controllers[p] = SnakeController.byName(bot);
+        }
+        startRecording(next, seed);
+        beginMatch(next, 3);
+    }
+
+    private void beginMatch(GameEngine next, int countdownSeconds) {
+        next.metrics = metrics;
+        if (spectators != null && net == null) { // a network client's match is only a prediction
+            next.spectators = spectators;
+            spectators.publish(next);
+        }
+        synchronized (frameLock) {
+            engine = next;
+        }
+        attached = false;
+        for (Rectangle r : lastSpans) r.setBounds(0, 0, 0, 0);
+        lastFoods = new int[next.players];
+        paused = false;
+
+        countdown = countdownSeconds;
+        countingDown = true;
+        countdownTask.stop();
+        countdownTask.start();
+
+        fadeTask.stop();
+        fadeAlpha = 0f;
+        showHighScore1 = false;
+        showHighScore2 = false;
+        updateClock();
+    }
+
+    private void countDown() {
+        countdown--;
+        if (countdown <= 0) {
+            countdownTask.stop();
+            countingDown = false;
+            updateClock(); // the match's frames take over
+        }
+        repaint();
+    }
+
+    /** Asks the server for a match; the net task starts it once an opponent turns up. */
+    private void joinNetworkMatch() {
+        try {
+            net.join();
+        } catch (IOException ex) {
+            networkFailed("Could not reach the server: " + ex.getMessage());
+            return;
+        }
+        synchronized (frameLock) {
+            engine = null;
+        }
+        waitingForOpponent = true;
+        showHighScore1 = false;
+        showHighScore2 = false;
+        netTask.start();
+        updateClock();
+        repaint();
+    }
+
+    private void pollNetwork() {
+        boolean corrected;
+        synchronized (frameLock) {
+            corrected = net.poll();
+        }
+        if (net.error != null) {
+            networkFailed(net.error);
+            return;
+        }
+        if (waitingForOpponent && net.started()) {
+            waitingForOpponent = false;
+            beginMatch(net.predicted, (net.countdownMillis + 999) / 1000);
+            return;
+        }
+        if (net.over) {
+            netTask.stop();
+            // the opponent can leave before the match even starts
+            if (net.endReason == NetProtocol.END_OPPONENT_LEFT && (net.confirmed == null || !net.confirmed.gameOver)) {
+                networkFailed("Your opponent left the match.");
+                return;
+            }
+            synchronized (frameLock) {
+                engine.restore(net.confirmed);
+            }
+            endGame();
+            repaint();
+        } else if (corrected && activeRenderer == null) {
+            repaint();
+        }
+    }
+
+    private void networkFailed(String message) {
+        netTask.stop();
+        countdownTask.stop();
+        countingDown = false;
+        waitingForOpponent = false;
+        JOptionPane.showMessageDialog(this, message, "TWO PLAYER SNAKE GAME", JOptionPane.WARNING_MESSAGE);
+        returnToIntro();
+    }
+
+    // the frame task paces rendering, and is brought forward to land on each move the engine has due
+    private void frame() {
+        if (!playing()) { // a network match predicted its own end; wait for the server's word without frames
+            updateClock();
+            return;
+        }
+
+        System.arraycopy(engine.foods, 0, lastFoods, 0, engine.players);
+        int wasAlive = engine.alive;
+
+        int events;
+        synchronized (frameLock) {
+            long now = System.nanoTime();
+            events = engine.update(now - lastFrameNanos);
+            lastFrameNanos = now;
+        }
+        if (!engine.gameOver) frameTask.runBy(lastFrameNanos + engine.nanosToNextTick());
+        if (activeRenderer == null) metrics.frame(); // the render thread counts its own frames
+
+        // the store only updates memory here; its writer thread does the disk I/O
+        if ((events & GameEngine.EVENT_ATE_1) != 0 && scores.offerScore(0, engine.snake(0).score)) {
+            showHighScore1 = true;
+            blinkTask.start();
+        }
+        if ((events & GameEngine.EVENT_ATE_2) != 0 && scores.offerScore(1, engine.snake(1).score)) {
+            showHighScore2 = true;
+            blinkTask.start();
+        }
+        // a networked match is only over when the server says so; the prediction may be wrong
+        if ((events & GameEngine.EVENT_GAME_OVER) != 0 && net == null) endGame();
+        if (activeRenderer != null) return; // the render thread redraws everything anyway
+
+        // a scrolling view moves everything, and many snakes' ends are all over the board anyway;
+        // a snake dying changes text all over its half; otherwise only the ends, food and HUD change
+        if (scrolls() || engine.players > 2 || wasAlive != engine.alive) {
+            repaint();
+            return;
+        }
+        if (events != 0) {
+            repaint(0, 0, WIDTH, HUD_HEIGHT);
+            for (int p = 0; p < engine.players; p++) {
+                if (lastFoods[p] != engine.food(p)) { repaintFood(lastFoods[p]); repaintFood(engine.food(p)); }
+            }
+        }
+        int glowFrame = glowFrame();
+        if (glowFrame != lastGlowFrame) {
+            // each orb on its own, like the snake ends, rather than the union of both halves
+            lastGlowFrame = glowFrame;
+            for (int p = 0; p < engine.players; p++) {
+                int food = engine.food(p);
+                if (food >= 0) paintImmediately(foodBounds(food));
+            }
+        }
+        if (engine.running[0]) paintSnakeEnds(engine.snake(0), 0);
+        if (engine.running[1]) paintSnakeEnds(engine.snake(1), 2);
+    }
+
+    private boolean scrolls() {
+        return engine.cols * CELL_SIZE > WIDTH || engine.rows * CELL_SIZE > HEIGHT;
+    }
+
+    private void repaintFood(int food) {
+        if (food >= 0) repaint(foodBounds(food));
+    }
+
+    private Rectangle foodBounds(int food) {
+        int reach = SpriteAtlas.GLOW_REACH;
+        return new Rectangle(food % engine.cols * CELL_SIZE - reach, food / engine.cols * CELL_SIZE - reach, ORB_SIZE + 2 * reach, ORB_SIZE + 2 * reach);
+    }
+
+    private int glowFrame() {
+        return animateGlow ? (int) (System.nanoTime() / GLOW_FRAME_NANOS % SpriteAtlas.GLOW_FRAMES) : 0;
+    }
+
+    /** The atlas for the current palette, rebuilt if a match has more players than it has rows. */
+    private SpriteAtlas sprites(Graphics2D g2, int players) {
+        if (sprites == null || sprites.players < players) {
+            // a body run never spans more than the visible columns
+            sprites = new SpriteAtlas(g2.getDeviceConfiguration(), Math.max(2, players), CELL_SIZE, HEAD_SIZE, ORB_SIZE,
+                    COLS + 2, BODY, HEAD, FOOD, FOOD_GLOW);
+        }
+        return sprites;
+    }
+
+    /**
+     * Only the head and tail of a snake move between frames; the body cells
+     * stay put. Paint the union of where each end was last frame and where it is
+     * now, immediately, so the two ends aren't coalesced into one big dirty rect.
+     */
+    private void paintSnakeEnds(Snake s, int slot) {
+        paintSpan(s, s.prevCell(0), s.cell(0), lastSpans[slot]);
+        int tail = s.length() - 1;
+        paintSpan(s, s.prevCell(tail), s.cell(tail), lastSpans[slot + 1]);
+    }
+
+    private void paintSpan(Snake s, int from, int to, Rectangle last) {
+        int fx = from % s.cols, fy = from / s.cols, tx = to % s.cols, ty = to / s.cols;
+        span.setBounds(Math.min(fx, tx) * CELL_SIZE, Math.min(fy, ty) * CELL_SIZE,
+                Math.abs(fx - tx) * CELL_SIZE + HEAD_SIZE, Math.abs(fy - ty) * CELL_SIZE + HEAD_SIZE);
+        if (last.isEmpty()) last.setBounds(span);
+        else last.add(span);
+        paintImmediately(last);
+        last.setBounds(span);
+    }
+
+    private void endGame() {
+        updateClock(); // the match is over, so its frames stop
+        stopRecording();
+        recordResults();
+        startFadeIn();
+        SwingUtilities.invokeLater(this::showGameOverDialog);
+    }
+
+    private void recordResults() {
+        int result = engine.getResult();
+        char p1 = switch (result) {
+            case GameEngine.RESULT_P1, GameEngine.RESULT_P1_TIME -> 'W';
+            case GameEngine.RESULT_P2, GameEngine.RESULT_P2_TIME -> 'L';
+            default -> 'T';
+        };
+        char p2 = p1 == 'W' ? 'L' : p1 == 'L' ? 'W' : 'T';
+        if (engine.players > 2) {
+            // against the whole field, not just each other
+            int winner = engine.winner();
+            p1 = winner == 0 ? 'W' : winner < 0 ? 'T' : 'L';
+            p2 = winner == 1 ? 'W' : winner < 0 ? 'T' : 'L';
+        }
+        Snake snake1 = engine.snake(0), snake2 = engine.snake(1);
+        scores.recordMatch(0, snake1.score, Math.round(engine.getPlayTime(snake1) * 1000), p1);
+        scores.recordMatch(1, snake2.score, Math.round(engine.getPlayTime(snake2) * 1000), p2);
+        if (matches == null) return;
+        try {
+            // a couple of stores into mapped memory; the OS writes the pages back
+            matches.append(System.currentTimeMillis(),
+                    0, snake1.score, Math.round(engine.getPlayTime(snake1) * 1000),
+                    1, snake2.score, Math.round(engine.getPlayTime(snake2) * 1000), result);
+        } catch (IOException e) {
+            System.err.println(MATCH_INDEX + ": not recording matches: " + e);
+            matches = null;
+        }
+    }
+
+    private void startFadeIn() {
+        fadeAlpha = 0f;
+        fadeTask.stop();
+        fadeTask.start();
+    }
+
+    private void fade() {
+        fadeAlpha += 0.08f;
+        if (fadeAlpha >= 1f) {
+            fadeAlpha = 1f;
+            fadeTask.stop();
+        }
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (activeRenderer != null) return; // the canvas covers the panel
+        long start = System.nanoTime();
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        drawScene(g2, 0);
+        if (showMetrics) drawMetrics(g2);
+        g2.dispose();
+        metrics.painted(start);
+        if (!firstFrameDrawn) onFirstFrame();
+    }
+
+    /** Draws one frame from the render thread, extrapolating the snakes from the last engine update. */
+    void renderFrame(Graphics2D g2) {
+        long start = System.nanoTime();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        synchronized (frameLock) {
+            boolean ticking = !intro && !paused && !countingDown;
+            drawScene(g2, ticking ? System.nanoTime() - lastFrameNanos : 0);
+        }
+        if (showMetrics) drawMetrics(g2);
+        metrics.painted(start);
+        if (!firstFrameDrawn) onFirstFrame();
+    }
+
+    /** The debug overlay: the last metrics window's percentiles, bottom left. */
+    private void drawMetrics(Graphics2D g2) {
+        int x = 8, y = HEIGHT - 8 - METRICS_BOX_HEIGHT;
+        g2.setColor(METRICS_BOX_COLOR);
+        g2.fillRect(x, y, METRICS_BOX_WIDTH, METRICS_BOX_HEIGHT);
+        g2.setColor(Color.GREEN);
+        g2.setFont(METRICS_FONT);
+        g2.drawString(String.format("last %-4s %7s %9s %9s %9s", metrics.windowMillis() / 1000 + "s", "n", "p50", "p99", "max"), x + 8, y + 16);
+        for (int m = 0; m < Metrics.NAMES.length; m++) {
+            Histogram h = metrics.window(m);
+            String row = m == Metrics.ALLOC
+                    ? String.format("%-9s %7d %8dB %8dB %8dB", "alloc", h.count(), h.percentile(50), h.percentile(99), h.max())
+                    : String.format("%-9s %7d %7.2fms %7.2fms %7.2fms", Metrics.NAMES[m], h.count(),
+                            h.percentile(50) / 1e6, h.percentile(99) / 1e6, h.max() / 1e6);
+            g2.drawString(row, x + 8, y + 34 + 15 * m);
+        }
+        g2.drawString("gc        " + metrics.windowGcCount() + " collections, " + metrics.windowGcMillis() + "ms"
+                        + "   first frame " + metrics.firstFrameMillis() + "ms",
+                x + 8, y + 34 + 15 * Metrics.NAMES.length);
+        g2.drawString("clock     " + wakeupRate + " wakeups/s", x + 8, y + 49 + 15 * Metrics.NAMES.length);
+    }
+
+    private void toggleMetrics() {
+        showMetrics = !showMetrics;
+        shownWakeups = clock.wakeups();
+        metricsTask.run(showMetrics);
+        repaint();
+    }
+
+    // Swing mode only repaints what changes, so the overlay is refreshed on its own
+    private void refreshMetrics() {
+        long wakeups = clock.wakeups();
+        wakeupRate = (int) ((wakeups - shownWakeups) * 1000 / 500);
+        shownWakeups = wakeups;
+        repaint(8, HEIGHT - 8 - METRICS_BOX_HEIGHT, METRICS_BOX_WIDTH, METRICS_BOX_HEIGHT);
+    }
+
+    /** Attaches the active-rendering canvas; call before the frame is shown. */
+    ActiveRenderer enableActiveRendering(int targetFps) {
+        activeRenderer = new ActiveRenderer(this, targetFps);
+        activeRenderer.canvas.setBounds(0, 0, WIDTH, HEIGHT);
+        activeRenderer.canvas.addMouseListener(nudge);
+        activeRenderer.canvas.addMouseMotionListener(nudge);
+        add(activeRenderer.canvas); // added last, so it stays below the intro buttons
+        return activeRenderer;
+    }
+
+    /** The whole screen, with the snakes as they are sinceUpdateNanos after the engine's last update. */
+    private void drawScene(Graphics2D g2, long sinceUpdateNanos) {
+        drawBackground(g2);
+
+        // stars only for dark themes
+        if (currentBackground != 2 && !stars.isEmpty()) {
+            if (brightStars == null) {
+                brightStars = renderStarLayer(true);
+                dimStars = renderStarLayer(false);
+            }
+            g2.drawImage(starsBright ? brightStars : dimStars, 0, 0, null);
+        }
+
+        if (intro) {
+            drawIntro(g2);
+            return;
+        }
+
+        if (engine != null) followLocalSnake(sinceUpdateNanos);
+        drawDividers(g2);
+
+        text.draw(g2, scoreLine(0), HUD_FONT, Color.WHITE, 12, 18);
+        text.draw(g2, scoreLine(1), HUD_FONT, Color.WHITE, WIDTH / 2 + 12, 18);
+        if (engine != null && engine.players > 2) text.draw(g2, aliveLine(), HUD_FONT, Color.WHITE, 12, 36);
+
+        if (waitingForOpponent) {
+            text.draw(g2, "Waiting for an opponent...", PAUSED_FONT, Color.WHITE, WIDTH / 2 - 220, HEIGHT / 2);
+            return;
+        }
+
+        if (countingDown) {
+            text.draw(g2, countdownLine(), COUNTDOWN_FONT, Color.WHITE, WIDTH / 2 - 24, HEIGHT / 2);
+            return;
+        }
+
+        if (paused) {
+            text.draw(g2, "PAUSED", PAUSED_FONT, Color.WHITE, WIDTH / 2 - 70, HEIGHT / 2);
+            return;
+        }
+
+        g2.translate(-viewX, -viewY);
+        drawBoard(g2, sinceUpdateNanos);
+        g2.translate(viewX, viewY);
+
+        // high score blink
+        if (showHighScore1 && blinkState) text.draw(g2, "🎉 New High Score! 🎉", BANNER_FONT, Color.ORANGE, 60, 60);
+        if (showHighScore2 && blinkState) text.draw(g2, "🎉 New High Score! 🎉", BANNER_FONT, Color.MAGENTA, WIDTH / 2 + 60, 60);
+
+        if (engine.gameOver) drawSummary(g2);
+    }
+
+    private String scoreLine(int p) {
+        int score = engine != null ? engine.snake(p).score : 0, high = scores.loaded() ? scores.highScore(p) : -1;
+        if (hudLines[p] == null || score != hudScore[p] || high != hudHigh[p]) {
+            hudScore[p] = score;
+            hudHigh[p] = high;
+            hudLines[p] = "Player " + (p + 1) + " Score: " + score + " | High: " + (high < 0 ? "..." : high);
+        }
+        return hudLines[p];
+    }
+
+    private String aliveLine() {
+        if (aliveLine == null || engine.alive != hudAlive || engine.players != hudPlayers) {
+            hudAlive = engine.alive;
+            hudPlayers = engine.players;
+            aliveLine = "Snakes alive: " + hudAlive + " of " + hudPlayers;
+        }
+        return aliveLine;
+    }
+
+    private String countdownLine() {
+        if (countdownLine == null || countdown != shownCountdown) {
+            shownCountdown = countdown;
+            countdownLine = countdown > 0 ? String.valueOf(countdown) : "GO!";
+        }
+        return countdownLine;
+    }
+
+    private String lostLine(int p) {
+        if (lostLines[p] == null) lostLines[p] = "Player " + (p + 1) + " Lost!";
+        return lostLines[p];
+    }
+
+    /** Centers the view on the local player's (interpolated) head, as far as the board edges allow. */
+    private void followLocalSnake(long sinceUpdateNanos) {
+        int boardWidth = engine.cols * CELL_SIZE, boardHeight = engine.rows * CELL_SIZE;
+        int local = net != null ? net.player : bots[0] != null && bots[1] == null ? 1 : 0;
+        Snake s = engine.snake(local);
+        float alpha = slide(local, sinceUpdateNanos);
+        int from = s.prevCell(0), to = s.cell(0);
+        float x = (from % s.cols + (to % s.cols - from % s.cols) * alpha) * CELL_SIZE;
+        float y = (from / s.cols + (to / s.cols - from / s.cols) * alpha) * CELL_SIZE;
+        viewX = boardWidth <= WIDTH ? 0 : Math.max(0, Math.min(boardWidth - WIDTH, Math.round(x) + CELL_SIZE / 2 - WIDTH / 2));
+        viewY = boardHeight <= HEIGHT ? 0 : Math.max(0, Math.min(boardHeight - HEIGHT, Math.round(y) + CELL_SIZE / 2 - HEIGHT / 2));
+    }
+
+    /** Band boundaries, and the board edge when the board doesn't exactly fill the window. */
+    private void drawDividers(Graphics2D g2) {
+        g2.setColor(DIVIDER_COLOR);
+        if (engine == null) {
+            g2.drawLine(WIDTH / 2, 0, WIDTH / 2, HEIGHT);
+            return;
+        }
+        int boardWidth = engine.cols * CELL_SIZE, boardHeight = engine.rows * CELL_SIZE;
+        if (!engine.shared) {
+            for (int p = 1; p < engine.players; p++) {
+                int x = engine.grid.regionStart(p) * CELL_SIZE - viewX;
+                if (x >= 0 && x <= WIDTH) g2.drawLine(x, Math.max(0, -viewY), x, Math.min(HEIGHT, boardHeight - viewY));
+            }
+        }
+        if (boardWidth != WIDTH || boardHeight != HEIGHT) g2.drawRect(-viewX, -viewY, boardWidth - 1, boardHeight - 1);
+    }
+
+    /**
+     * Food, snakes and lost-player notices, in board coordinates. Bodies are
+     * drawn from the grid, one lookup per visible cell and one atlas blit per
+     * horizontal run of a snake's cells, so the cost is set by the window (or
+     * the dirty clip) rather than by the board or the snakes' lengths; heads
+     * and tails, which slide between ticks, are drawn per snake.
+     */
+    private void drawBoard(Graphics2D g2, long sinceUpdateNanos) {
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null) clip = new Rectangle(viewX, viewY, WIDTH, HEIGHT);
+        // visible cells, widened by one for heads and food orbs that overhang their cell
+        int x0 = Math.max(0, clip.x / CELL_SIZE - 1), x1 = Math.min(engine.cols, (clip.x + clip.width) / CELL_SIZE + 1);
+        int y0 = Math.max(0, clip.y / CELL_SIZE - 1), y1 = Math.min(engine.rows, (clip.y + clip.height) / CELL_SIZE + 1);
+
+        SpriteAtlas sprites = sprites(g2, engine.players);
+
+        // food
+        int glowFrame = glowFrame();
+        for (int p = 0; p < engine.players; p++) {
+            int food = engine.food(p), fx = food % engine.cols, fy = food / engine.cols;
+            if (food < 0 || fx < x0 || fx >= x1 || fy < y0 || fy >= y1) continue;
+            sprites.drawOrb(g2, p, fx * CELL_SIZE, fy * CELL_SIZE, glowFrame);
+        }
+
+        // bodies where they are; heads are left to slide in below
+        short[] owner = engine.grid.owner;
+        for (int y = y0; y < y1; y++) {
+            int x = x0, cell = y * engine.cols + x0;
+            while (x < x1) {
+                int p = owner[cell] - 1;
+                if (p < 0 || !engine.running[p] || engine.snake(p).cell(0) == cell) {
+                    x++;
+                    cell++;
+                    continue;
+                }
+                int head = engine.snake(p).cell(0), run = 1;
+                while (x + run < x1 && owner[cell + run] - 1 == p && cell + run != head) run++;
+                sprites.drawBody(g2, p, x * CELL_SIZE, y * CELL_SIZE, run);
+                x += run;
+                cell += run;
+            }
+        }
+
+        // ends, each interpolated between its snake's last two moves
+        Font lostFont = engine.players > 2 ? HUD_FONT : LOST_FONT; // small print when many can die
+        for (int p = 0; p < engine.players; p++) {
+            Snake s = engine.snake(p);
+            if (engine.running[p]) {
+                drawEnds(g2, sprites, s, p, slide(p, sinceUpdateNanos));
+            } else if (engine.shared) {
+                text.draw(g2, lostLine(p), lostFont, Color.WHITE, s.headX() * CELL_SIZE, s.headY() * CELL_SIZE);
+            } else {
+                text.draw(g2, lostLine(p), lostFont, Color.WHITE, engine.grid.regionStart(p) * CELL_SIZE + 50, viewY + HEIGHT / 2);
+            }
+        }
+    }
+
+    /** Blits the theme background, re-rendering it only when the theme changes or VRAM was lost. */
+    private void drawBackground(Graphics2D g2) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc == null) {
+            paintBackground(g2);
+            return;
+        }
+        do {
+            int status = backgroundImage == null ? VolatileImage.IMAGE_INCOMPATIBLE : backgroundImage.validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                backgroundImage = gc.createCompatibleVolatileImage(WIDTH, HEIGHT);
+                backgroundImageTheme = -1;
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                backgroundImageTheme = -1;
+            }
+            if (backgroundImageTheme != currentBackground) {
+                Graphics2D bg = backgroundImage.createGraphics();
+                paintBackground(bg);
+                bg.dispose();
+                backgroundImageTheme = currentBackground;
+            }
+            g2.drawImage(backgroundImage, 0, 0, null);
+        } while (backgroundImage.contentsLost());
+    }
+
+    private void paintBackground(Graphics2D g2) {
+        switch (currentBackground) {
+            case 0 -> { // Dark gradient
+                GradientPaint gp = new GradientPaint(0, 0, Color.BLACK, 0, HEIGHT, new Color(7, 26, 63));
+                g2.setPaint(gp);
+                g2.fillRect(0, 0, WIDTH, HEIGHT);
+            }
+            case 1 -> { // Dark solid
+                g2.setColor(new Color(15, 15, 30));
+                g2.fillRect(0, 0, WIDTH, HEIGHT);
+            }
+            case 2 -> { // Orange morning
+                GradientPaint gp = new GradientPaint(0, 0, new Color(255, 153, 51), 0, HEIGHT, new Color(255, 204, 102));
+                g2.setPaint(gp);
+                g2.fillRect(0, 0, WIDTH, HEIGHT);
+            }
+        }
+    }
+
+    private BufferedImage renderStarLayer(boolean bright) {
+        BufferedImage layer = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2 = layer.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        for (Star st : stars) st.draw(g2, bright);
+        g2.dispose();
+        return layer;
+    }
+
+    private void drawIntro(Graphics2D g2) {
+        text.draw(g2, "TWO PLAYER SNAKE GAME", TITLE_FONT, Color.WHITE, WIDTH / 2 - 300, HEIGHT / 2 - 60);
+
+        if (introSnake1 == null) return; // not until startup is finished
+        SpriteAtlas sprites = sprites(g2, 2);
+        drawSnake(g2, sprites, introSnake1, 0, 1f);
+        drawSnake(g2, sprites, introSnake2, 1, 1f);
+    }
+
+    /**
+     * Body cells are drawn where they are; only the head slides in from the
+     * previous head cell and the tail slides out of the cell it just left, so
+     * between ticks nothing but the two ends changes on screen.
+     */
+    private void drawSnake(Graphics2D g2, SpriteAtlas sprites, Snake s, int player, float alpha) {
+        Rectangle clip = g2.getClipBounds();
+        int last = s.length() - 1;
+        for (int i = 1; i <= last; i++) {
+            int px = s.x(i) * CELL_SIZE, py = s.y(i) * CELL_SIZE;
+            if (clip != null && !clip.intersects(px, py, CELL_SIZE, CELL_SIZE)) continue;
+            sprites.drawBody(g2, player, px, py, 1);
+        }
+        drawEnds(g2, sprites, s, player, alpha);
+    }
+
+    // how far a player's snake has slid from its last move towards its next; each moves at its own pace
+    private float slide(int player, long sinceUpdateNanos) {
+        return engine.gameOver ? 1f : engine.alpha(player, sinceUpdateNanos);
+    }
+
+    private void drawEnds(Graphics2D g2, SpriteAtlas sprites, Snake s, int player, float alpha) {
+        int last = s.length() - 1, tailFrom = s.prevCell(last), tailTo = s.cell(last);
+        if (tailFrom != tailTo) sprites.drawBody(g2, player, lerpX(s, tailFrom, tailTo, alpha), lerpY(s, tailFrom, tailTo, alpha), 1);
+        int headFrom = s.prevCell(0), headTo = s.cell(0);
+        sprites.drawHead(g2, player, lerpX(s, headFrom, headTo, alpha), lerpY(s, headFrom, headTo, alpha));
+    }
+
+    private int lerpX(Snake s, int from, int to, float alpha) {
+        int fx = from % s.cols, tx = to % s.cols;
+        return Math.round((fx + (tx - fx) * alpha) * CELL_SIZE);
+    }
+
+    private int lerpY(Snake s, int from, int to, float alpha) {
+        int fy = from / s.cols, ty = to / s.cols;
+        return Math.round((fy + (ty - fy) * alpha) * CELL_SIZE);
+    }
+
+    private void drawSummary(Graphics2D g2) {
+        Composite old = g2.getComposite();
+        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, fadeAlpha));
+
+        int boxW = 450, boxH = 220;
+        int x = WIDTH / 2 - boxW / 2;
+        int y = HEIGHT / 2 - boxH / 2;
+
+        g2.setColor(SUMMARY_BOX_COLOR);
+        g2.fillRoundRect(x, y, boxW, boxH, 30, 30);
+
+        // a finished match only changes if a network client rolls it back, so its lines are built once
+        if (summaryOf != engine || summaryTicks != engine.ticks) {
+            summaryOf = engine;
+            summaryTicks = engine.ticks;
+            Snake snake1 = engine.snake(0), snake2 = engine.snake(1);
+            summaryLine1 = "Player 1 Score: " + snake1.score + " | Time: " + (int) engine.getPlayTime(snake1) + "s";
+            summaryLine2 = "Player 2 Score: " + snake2.score + " | Time: " + (int) engine.getPlayTime(snake2) + "s";
+            resultLine = getResult();
+        }
+        text.draw(g2, "GAME OVER", SUMMARY_TITLE_FONT, Color.WHITE, x + 140, y + 40);
+        text.draw(g2, summaryLine1, SUMMARY_FONT, Color.WHITE, x + 40, y + 80);
+        text.draw(g2, summaryLine2, SUMMARY_FONT, Color.WHITE, x + 40, y + 120);
+        text.draw(g2, resultLine, RESULT_FONT, Color.YELLOW, x + 120, y + 170);
+        text.draw(g2, "Press R to Restart", HINT_FONT, Color.WHITE, x + 140, y + 200);
+
+        g2.setComposite(old);
+    }
+
+    private String getResult() {
+        if (engine.players > 2) {
+            int winner = engine.winner();
+            return winner < 0 ? "It's a Tie!" : "🏆 Player " + (winner + 1) + " Wins!";
+        }
+        return switch (engine.getResult()) {
+            case GameEngine.RESULT_P1 -> "🏆 Player 1 Wins!";
+            case GameEngine.RESULT_P2 -> "🏆 Player 2 Wins!";
+            case GameEngine.RESULT_P1_TIME -> "🏆 Player 1 Wins by Time!";
+            case GameEngine.RESULT_P2_TIME -> "🏆 Player 2 Wins by Time!";
+            default -> "It's a Tie!";
+        };
+    }
+
+    private void showGameOverDialog() {
+        String[] options = {"Play Again", "Change Background", "Reset High Score", "OK"};
+        Snake snake1 = engine.snake(0), snake2 = engine.snake(1);
+        int choice = JOptionPane.showOptionDialog(
+                this,
+                "Player 1: " + snake1.score + " | Time: " + (int) engine.getPlayTime(snake1) + "s\n" +
+                "Player 2: " + snake2.score + " | Time: " + (int) engine.getPlayTime(snake2) + "s\n" +
+                getResult() + "\n\n" +
+                "Player 1 best: " + bestScores(0) + allTimeRank(snake1.score) + "\n" +
+                "Player 2 best: " + bestScores(1) + allTimeRank(snake2.score),
+                "TWO PLAYER SNAKE GAME",
+                JOptionPane.DEFAULT_OPTION,
+                JOptionPane.INFORMATION_MESSAGE,
+                null,
+                options,
+                options[0]
+        );
+
+        switch (choice) {
+            case 0 -> startMatch(); // Play Again
+            case 1 -> { chooseBackground(); returnToIntro(); } // Change Background
+            case 2 -> { resetHighScores(); returnToIntro(); } // Reset High Score
+            default -> returnToIntro(); // OK
+        }
+    }
+
+    private String bestScores(int player) {
+        StringBuilder sb = new StringBuilder();
+        for (ScoreStore.Entry e : scores.leaderboard(player)) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(e.score);
+            if (sb.length() > 40) break;
+        }
+        return sb.length() == 0 ? "-" : sb.toString();
+    }
+
+    private String allTimeRank(int score) {
+        if (matches == null) return "";
+        return " | all-time rank #" + matches.rankOf(score) + " of " + matches.results();
+    }
+
+    private void returnToIntro() {
+        intro = true;
+        finishStartup();
+        // index 0 keeps the buttons above the active-rendering canvas
+        add(startButton, 0);
+        add(changeBgButton, 0);
+        add(resetScoreButton, 0);
+        updateClock();
+        repaint();
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        noteInput();
+        int key = e.getKeyCode();
+        if (key == KeyEvent.VK_F3) {
+            toggleMetrics();
+            return;
+        }
+        if (intro || engine == null) return;
+
+        // the server can't pause a networked match
+        if (key == KeyEvent.VK_P && net == null && !countingDown && !engine.gameOver) {
+            paused = !paused;
+            updateClock();
+            repaint();
+            return;
+        }
+
+        if (net != null && !engine.gameOver && !countingDown) {
+            // either set of keys steers whichever snake the server gave us
+            int dir = switch (key) {
+                case KeyEvent.VK_W, KeyEvent.VK_UP -> Snake.UP;
+                case KeyEvent.VK_S, KeyEvent.VK_DOWN -> Snake.DOWN;
+                case KeyEvent.VK_A, KeyEvent.VK_LEFT -> Snake.LEFT;
+                case KeyEvent.VK_D, KeyEvent.VK_RIGHT -> Snake.RIGHT;
+                default -> Snake.NONE;
+            };
+            if (dir != Snake.NONE) engine.input(net.player).offer(dir);
+        } else if (!engine.gameOver && !countingDown && !paused) {
+            // player 1
+            if (key == KeyEvent.VK_W) engine.input(0).offer(Snake.UP);
+            if (key == KeyEvent.VK_S) engine.input(0).offer(Snake.DOWN);
+            if (key == KeyEvent.VK_A) engine.input(0).offer(Snake.LEFT);
+            if (key == KeyEvent.VK_D) engine.input(0).offer(Snake.RIGHT);
+            // player 2
+            if (key == KeyEvent.VK_UP) engine.input(1).offer(Snake.UP);
+            if (key == KeyEvent.VK_DOWN) engine.input(1).offer(Snake.DOWN);
+            if (key == KeyEvent.VK_LEFT) engine.input(1).offer(Snake.LEFT);
+            if (key == KeyEvent.VK_RIGHT) engine.input(1).offer(Snake.RIGHT);
+        } else if (key == KeyEvent.VK_R && (net == null || engine.gameOver)) {
+            startMatch();
+        }
+    }
+
+    @Override public void keyReleased(KeyEvent e) {}
+    @Override public void keyTyped(KeyEvent e) {}
+
+    private void startRecording(GameEngine match, long seed) {
+        stopRecording();
+        if (!persistent) return;
+        try {
+            Path dir = Paths.get(REPLAY_DIR);
+            Files.createDirectories(dir);
+            String name = "match-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS")) + ".snr";
+            replay = new ReplayWriter(dir.resolve(name), match, seed);
+            match.recorder = replay;
+        } catch (IOException ignored) {}
+    }
+
+    private void stopRecording() {
+        if (replay == null) return;
+        try {
+            replay.close();
+        } catch (IOException ignored) {}
+        replay = null;
+    }
+
+    class Star {
+        int x, y, size;
+
+        Star(int x, int y, int size) { this.x = x; this.y = y; this.size = size; }
+
+        // all stars twinkle in step, so the panel caches one layer per state
+        void draw(Graphics2D g2, boolean bright) {
+            g2.setColor(bright ? Color.WHITE : Color.GRAY);
+            g2.fillOval(x, y, size, size);
+        }
+    }
+
+    /**
+     * What --cds-training runs instead of the game: a headless launch that
+     * draws the first frame, the finished intro and a short bot match into
+     * an image, then exits, so that a JVM started with
+     * -XX:ArchiveClassesAtExit archives the classes a real launch loads.
+     * The build does this in game/pom.xml's cds profile.
+     */
+    private static void trainCds(long mainNanos) throws Exception {
+        TwoPlayerSnake[] game = new TwoPlayerSnake[1];
+        BufferedImage[] image = new BufferedImage[1];
+        SwingUtilities.invokeAndWait(() -> {
+            TwoPlayerSnake g = game[0] = new TwoPlayerSnake();
+            g.mainNanos = mainNanos;
+            g.setSize(g.WIDTH, g.HEIGHT);
+            image[0] = new BufferedImage(g.WIDTH, g.HEIGHT, BufferedImage.TYPE_INT_RGB);
+            g.paint(image[0].getGraphics()); // queues the rest of startup
+        });
+        SwingUtilities.invokeAndWait(() -> {
+            TwoPlayerSnake g = game[0];
+            g.paint(image[0].getGraphics());
+            GameEngine match = new GameEngine(g.COLS, g.ROWS, 2, false, 1);
+            match.controllers[0] = SnakeController.byName("path");
+            match.controllers[1] = SnakeController.byName("greedy");
+            g.attach(match);
+            for (int i = 0; i < 300 && !match.gameOver; i++) {
+                match.update(match.delay * 1_000_000L);
+                g.paint(image[0].getGraphics());
+            }
+        });
+        game[0].scores.close();
+        System.exit(0);
+    }
+
+    public static void main(String[] args) throws Exception {
+        long mainNanos = System.nanoTime();
+        // --active[=fps] draws through a BufferStrategy on its own thread instead of Swing repaints;
+        // --connect=host[:port] plays one snake against another client of a SnakeServer;
+        // --bot1=name / --bot2=name hand a local player to a built-in bot (greedy, path, survival);
+        // --board=COLSxROWS (up to 4096 a side) and --players=N set up local matches, players past
+        // the second being bots, and --shared puts every snake in one arena instead of a band each;
+        // --metrics=file.csv|file.json appends tick/paint/frame percentiles every --metrics-every=seconds (5);
+        // --glow pulses the food orbs' glow; --spectate=port streams local matches to SpectatorView
+        // clients, and --spectate-file=path writes the same stream to a file;
+        // --cds-training is the build's class-data training run (see trainCds), not a game.
+        // For kiosk cold starts, launch with the archive the build leaves next to the jar:
+        //   java -XX:SharedArchiveFile=target/snake-game.jsa -jar target/snake-game-<version>.jar
+        for (String arg : args) {
+            if (arg.equals("--cds-training")) trainCds(mainNanos);
+        }
+        int activeFps = 0, cols = 0, rows = 0, players = 2;
+        boolean shared = false, glow = false;
+        Path metricsFile = null, spectateFile = null;
+        int spectatePort = -1;
+        long metricsWindow = Metrics.DEFAULT_WINDOW_MILLIS;
+        InetSocketAddress server = null;
+        String[] bots = new String[2];
+        for (String arg : args) {
+            if (arg.equals("--active")) activeFps = 120;
+            else if (arg.startsWith("--active=")) activeFps = Integer.parseInt(arg.substring("--active=".length()));
+            else if (arg.startsWith("--connect=")) {
+                String host = arg.substring("--connect=".length());
+                int colon = host.lastIndexOf(':');
+                int port = colon < 0 ? NetProtocol.DEFAULT_PORT : Integer.parseInt(host.substring(colon + 1));
+                server = new InetSocketAddress(colon < 0 ? host : host.substring(0, colon), port);
+            } else if (arg.startsWith("--bot1=") || arg.startsWith("--bot2=")) {
+                String name = arg.substring("--botN=".length());
+                SnakeController.byName(name); // fail fast on a typo
+                bots[arg.charAt(5) - '1'] = name;
+            } else if (arg.startsWith("--board=")) {
+                String[] size = arg.substring("--board=".length()).split("x");
+                cols = Integer.parseInt(size[0]);
+                rows = Integer.parseInt(size[1]);
+            } else if (arg.startsWith("--players=")) {
+                players = Integer.parseInt(arg.substring("--players=".length()));
+            } else if (arg.equals("--shared")) {
+                shared = true;
+            } else if (arg.equals("--glow")) {
+                glow = true;
+            } else if (arg.startsWith("--spectate=")) {
+                spectatePort = Integer.parseInt(arg.substring("--spectate=".length()));
+            } else if (arg.startsWith("--spectate-file=")) {
+                spectateFile = Paths.get(arg.substring("--spectate-file=".length()));
+            } else if (arg.startsWith("--metrics=")) {
+                metricsFile = Paths.get(arg.substring("--metrics=".length()));
+            } else if (arg.startsWith("--metrics-every=")) {
+                metricsWindow = Math.round(Double.parseDouble(arg.substring("--metrics-every=".length())) * 1000);
+            }
+        }
+
+        JFrame frame = new JFrame("TWO PLAYER SNAKE GAME");
+        TwoPlayerSnake game = new TwoPlayerSnake();
+        game.mainNanos = mainNanos;
+        if (server != null) game.net = new NetClient(server);
+        System.arraycopy(bots, 0, game.bots, 0, 2);
+        if (cols > 0) {
+            game.boardCols = cols;
+            game.boardRows = rows;
+        }
+        game.playerCount = players;
+        game.sharedBoard = shared;
+        game.animateGlow = glow;
+        GameEngine.checkSetup(game.boardCols, game.boardRows, players, shared); // fail fast on a bad setup
+        game.metrics.start(metricsWindow, metricsFile);
+        if (spectatePort >= 0 || spectateFile != null) {
+            game.spectators = new SpectatorFeed(game.boardCols, game.boardRows, players);
+            try {
+                if (spectatePort >= 0) System.out.println("Spectators on port " + game.spectators.serve(new InetSocketAddress(spectatePort)));
+                if (spectateFile != null) game.spectators.subscribe(SpectatorFeed.fileSink(spectateFile));
+            } catch (IOException e) {
+                System.err.println("not streaming to spectators: " + e);
+            }
+        }
+        ActiveRenderer renderer = activeFps > 0 ? game.enableActiveRendering(activeFps) : null;
+        frame.add(game);
+        frame.pack();
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setLocationRelativeTo(null);
+        frame.setResizable(false);
+        frame.setVisible(true);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            game.scores.close(); // lets the writer drain
+            if (game.spectators != null) game.spectators.close();
+            if (game.matches != null) {
+                try {
+                    game.matches.close();
+                } catch (IOException ignored) {}
+            }
+        }));
+
+        if (renderer != null) {
+            renderer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println("Frame times: " + renderer.stats.summary())));
+        }
+    }
+}
\ No newline at end of file
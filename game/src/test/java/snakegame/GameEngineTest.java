@@ -0,0 +1,68 @@
+package snakegame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class GameEngineTest {
+    // two players on a shared 31x11 board start with heads at (10, 5) and (20, 5)
+    private static final int COLS = 31, ROWS = 11, SEED = 1;
+    private static final int MEET = 4 * COLS + 15;
+
+    /** Both snakes head up a row, then straight at each other: mirror images that reach (15, 4) on the same tick. */
+    private static GameEngine headOn() {
+        GameEngine match = new GameEngine(COLS, ROWS, 2, true, SEED);
+        for (int p = 0; p < 2; p++) {
+            int food = match.food(p);
+            assertFalse(food / COLS == 4 && food % COLS >= 10 && food % COLS <= 20, "food in the way for this seed");
+        }
+        match.step(new int[] {Snake.UP, Snake.UP});
+        match.step(new int[] {Snake.RIGHT, Snake.LEFT});
+        while (match.alive == 2 && match.ticks < 20) match.step(new int[] {Snake.NONE, Snake.NONE});
+        return match;
+    }
+
+    @Test
+    void headOnMeetingKillsBoth() {
+        GameEngine match = headOn();
+        assertTrue(match.gameOver);
+        assertEquals(6, match.ticks);
+        for (int p = 0; p < 2; p++) {
+            assertFalse(match.running[p]);
+            assertTrue(match.snake(p).collision());
+            assertEquals(MEET, match.snake(p).cell(0));
+        }
+        assertEquals(match.getPlayTime(match.snake(0)), match.getPlayTime(match.snake(1)));
+        assertEquals(Grid.EMPTY, match.grid.owner[MEET]);
+    }
+
+    @Test
+    void deadSnakesLeaveTheBoard() {
+        GameEngine match = headOn();
+        for (short owner : match.grid.owner) assertEquals(Grid.EMPTY, owner);
+        // every cell is free again but the two the foods hold
+        assertEquals(COLS * ROWS - 2, match.grid.freeCount(0));
+    }
+
+    @Test
+    void reachingAnotherPlayersFoodEatsIt() {
+        GameEngine match = new GameEngine(COLS, ROWS, 2, true, SEED);
+        int cell = 5 * COLS + 11; // just ahead of player 1's head
+        assertFalse(match.food(0) == cell, "own food in the way for this seed");
+        match.grid.release(match.foods[1]);
+        match.foods[1] = cell;
+        match.grid.reserve(cell);
+
+        int events = match.step(new int[] {Snake.RIGHT, Snake.UP});
+        assertEquals(GameEngine.EVENT_ATE_1, events);
+        assertEquals(1, match.snake(0).score);
+        assertEquals(0, match.snake(1).score);
+        assertEquals(match.snake(0).id, match.grid.owner[cell]);
+        assertNotEquals(cell, match.food(1));
+        assertNotEquals(match.food(0), match.food(1));
+        assertTrue(match.grid.reserved(match.food(1)));
+    }
+}
@@ -0,0 +1,193 @@
+package snakegame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class GridTest {
+    private static final int COLS = 12, ROWS = 8;
+
+    private static int cell(int x, int y) {
+        return y * COLS + x;
+    }
+
+    /** Each region's free count is its number of empty, unreserved cells, and randomFree only ever finds those. */
+    private static void assertFreeListsMatch(Grid grid, int regions) {
+        Rng rng = new Rng(7);
+        for (int r = 0; r < regions; r++) {
+            Set<Integer> free = new HashSet<>();
+            for (int x = grid.regionStart(r); x < grid.regionStart(r + 1); x++) {
+                for (int y = 0; y < ROWS; y++) {
+                    int cell = cell(x, y);
+                    assertEquals(r, grid.regionOf(cell));
+                    if (grid.owner[cell] == Grid.EMPTY && !grid.reserved(cell)) free.add(cell);
+                }
+            }
+            assertEquals(free.size(), grid.freeCount(r), "region " + r);
+            for (int i = 0; i < 200; i++) {
+                int cell = grid.randomFree(r, rng);
+                if (free.isEmpty()) assertEquals(-1, cell);
+                else assertTrue(free.contains(cell), "picked " + cell);
+            }
+        }
+    }
+
+    /** Every cell marked with the id is a body segment, and every segment is marked. */
+    private static void assertMarksExactly(Grid grid, Snake s) {
+        int marked = 0;
+        for (short owner : grid.owner) if (owner == s.id) marked++;
+        assertEquals(s.length(), marked);
+        for (int i = 0; i < s.length(); i++) assertEquals(s.id, grid.owner[s.cell(i)], "segment " + i);
+    }
+
+    @Test
+    void occupyAndVacateMarkOwners() {
+        Grid grid = new Grid(COLS, ROWS);
+        grid.occupy(cell(3, 2), (short) 1);
+        assertEquals(1, grid.owner[cell(3, 2)]);
+        grid.occupy(cell(3, 2), (short) 2); // taking a marked cell just changes its owner
+        assertEquals(2, grid.owner[cell(3, 2)]);
+        grid.vacate(cell(3, 2));
+        assertEquals(Grid.EMPTY, grid.owner[cell(3, 2)]);
+        grid.vacate(cell(3, 2));
+        assertEquals(Grid.EMPTY, grid.owner[cell(3, 2)]);
+    }
+
+    @Test
+    void movingSnakeMarksItsBodyAndFreesItsTail() {
+        Grid grid = new Grid(COLS, ROWS);
+        Snake s = new Snake(5, 3, 0, COLS, COLS, ROWS, 0, grid, (short) 1);
+        assertMarksExactly(grid, s);
+        int tail = s.cell(s.length() - 1);
+        s.setDirection(Snake.RIGHT);
+        s.move();
+        assertFalse(s.collision());
+        assertEquals(Grid.EMPTY, grid.owner[tail]);
+        assertMarksExactly(grid, s);
+
+        s.grow(0);
+        s.setDirection(Snake.DOWN);
+        s.move();
+        assertEquals(5, s.length());
+        assertMarksExactly(grid, s);
+    }
+
+    @Test
+    void headOnOwnBodyCollidesFromTheGridAlone() {
+        Grid grid = new Grid(COLS, ROWS);
+        Snake s = new Snake(5, 3, 0, COLS, COLS, ROWS, 0, grid, (short) 1);
+        for (int i = 0; i < 2; i++) s.grow(0);
+        for (int dir : new int[] {Snake.RIGHT, Snake.RIGHT, Snake.DOWN, Snake.LEFT}) {
+            s.setDirection(dir);
+            s.move();
+            assertFalse(s.collision());
+        }
+        s.setDirection(Snake.UP); // back onto the second segment
+        s.move();
+        assertTrue(s.collision());
+        assertFalse(s.hitWall);
+    }
+
+    @Test
+    void followingTheTailIsNotACollision() {
+        Grid grid = new Grid(COLS, ROWS);
+        Snake s = new Snake(5, 3, 0, COLS, COLS, ROWS, 0, grid, (short) 1);
+        // a four-long snake turning a tight square always steps into the cell its tail just left
+        for (int i = 0; i < 12; i++) {
+            s.setDirection(new int[] {Snake.DOWN, Snake.LEFT, Snake.UP, Snake.RIGHT}[i % 4]);
+            s.move();
+            assertFalse(s.collision(), "move " + i);
+            assertMarksExactly(grid, s);
+        }
+    }
+
+    @Test
+    void wallStopsTheHeadOnTheBoard() {
+        Grid grid = new Grid(COLS, ROWS);
+        Snake s = new Snake(COLS - 1, 0, 0, COLS, COLS, ROWS, 0, grid, (short) 1);
+        s.setDirection(Snake.RIGHT);
+        s.move();
+        assertTrue(s.collision());
+        assertTrue(s.hitWall);
+        assertEquals(cell(COLS - 1, 0), s.cell(0));
+        assertMarksExactly(grid, s);
+    }
+
+    @Test
+    void freeListsFollowOccupyAndVacateInEveryBand() {
+        Grid grid = new Grid(COLS, ROWS, 3);
+        assertEquals(COLS, grid.regionStart(3));
+        assertFreeListsMatch(grid, 3);
+        Rng rng = new Rng(3);
+        for (int i = 0; i < 500; i++) {
+            int cell = rng.nextInt(COLS * ROWS);
+            if (rng.nextInt(3) == 0) grid.vacate(cell);
+            else grid.occupy(cell, (short) (1 + rng.nextInt(3)));
+            if (i % 25 == 0) assertFreeListsMatch(grid, 3);
+        }
+        assertFreeListsMatch(grid, 3);
+    }
+
+    @Test
+    void fullBandHasNoFreeCell() {
+        Grid grid = new Grid(COLS, ROWS, 2);
+        for (int x = 0; x < grid.regionStart(1); x++) for (int y = 0; y < ROWS; y++) grid.occupy(cell(x, y), (short) 1);
+        assertEquals(0, grid.freeCount(0));
+        assertEquals(-1, grid.randomFree(0, new Rng(1)));
+        assertEquals(COLS / 2 * ROWS, grid.freeCount(1));
+    }
+
+    @Test
+    void reservedCellLeavesTheFreeListUntilReleasedOrTaken() {
+        Grid grid = new Grid(COLS, ROWS);
+        int food = cell(4, 4), other = cell(6, 1);
+        grid.reserve(food);
+        assertTrue(grid.reserved(food));
+        assertEquals(Grid.EMPTY, grid.owner[food]);
+        assertEquals(COLS * ROWS - 1, grid.freeCount(0));
+        grid.reserve(food); // twice is once
+        assertEquals(COLS * ROWS - 1, grid.freeCount(0));
+        assertFreeListsMatch(grid, 1);
+
+        grid.release(food);
+        assertFalse(grid.reserved(food));
+        assertEquals(COLS * ROWS, grid.freeCount(0));
+        grid.release(food); // releasing a free cell changes nothing
+        assertEquals(COLS * ROWS, grid.freeCount(0));
+
+        // a snake eating the food takes the reserved cell straight off it, and leaving puts it back on the free list
+        grid.reserve(other);
+        grid.occupy(other, (short) 1);
+        assertFalse(grid.reserved(other));
+        assertEquals(COLS * ROWS - 1, grid.freeCount(0));
+        grid.release(other); // taken since, so not released
+        assertEquals(1, grid.owner[other]);
+        assertEquals(COLS * ROWS - 1, grid.freeCount(0));
+        grid.vacate(other);
+        assertEquals(COLS * ROWS, grid.freeCount(0));
+        assertFreeListsMatch(grid, 1);
+
+        grid.occupy(food, (short) 2);
+        grid.reserve(food); // only an empty cell can be reserved
+        assertFalse(grid.reserved(food));
+        assertFreeListsMatch(grid, 1);
+    }
+
+    @Test
+    void copiesKeepReservations() {
+        Grid grid = new Grid(COLS, ROWS, 2);
+        grid.reserve(cell(1, 1));
+        grid.occupy(cell(8, 2), (short) 2);
+        Grid copy = new Grid(grid), into = new Grid(COLS, ROWS, 2);
+        into.copyFrom(grid);
+        for (Grid g : new Grid[] {copy, into}) {
+            assertTrue(g.reserved(cell(1, 1)));
+            assertEquals(2, g.owner[cell(8, 2)]);
+            assertFreeListsMatch(g, 2);
+        }
+    }
+}
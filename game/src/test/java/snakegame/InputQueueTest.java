@@ -0,0 +1,82 @@
+package snakegame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class InputQueueTest {
+    private static final int CAPACITY = 16;
+
+    @Test
+    void emptyQueuePollsNone() {
+        InputQueue q = new InputQueue();
+        assertEquals(Snake.NONE, q.poll());
+        assertEquals(0, q.consumed());
+    }
+
+    @Test
+    void keepsOrderAndStampsAcrossWrapAround() {
+        InputQueue q = new InputQueue();
+        long next = 0, expected = 0;
+        // stay a few commands behind, so the ring wraps many times over
+        for (int round = 0; round < 10 * CAPACITY; round++) {
+            for (int i = 0; i < 3; i++, next++) assertTrue(q.offer((int) (next & 3), 1000 + next));
+            for (int i = 0; i < 3; i++, expected++) {
+                assertEquals(expected & 3, q.poll());
+                assertEquals(1000 + expected, q.lastStamp());
+            }
+        }
+        assertEquals(Snake.NONE, q.poll());
+        assertEquals(expected, q.consumed());
+    }
+
+    @Test
+    void fullQueueDropsUntilPolled() {
+        InputQueue q = new InputQueue();
+        q.offer(Snake.UP, 0);
+        q.poll(); // so the full ring straddles the wrap point
+        for (int i = 0; i < CAPACITY; i++) assertTrue(q.offer(i & 3, i));
+        assertFalse(q.offer(Snake.LEFT, 99));
+        assertEquals(0, q.poll());
+        assertTrue(q.offer(Snake.LEFT, 100));
+        assertFalse(q.offer(Snake.LEFT, 101));
+        for (int i = 1; i < CAPACITY; i++) assertEquals(i & 3, q.poll());
+        assertEquals(Snake.LEFT, q.poll());
+        assertEquals(100, q.lastStamp());
+        assertEquals(Snake.NONE, q.poll());
+    }
+
+    @Test
+    void upThenLeftWhileMovingRightTurnsTwiceInsteadOfReversing() {
+        GameEngine match = new GameEngine(50, 30, 3);
+        InputQueue p1 = match.input(0);
+        p1.offer(Snake.RIGHT);
+        match.tick();
+        assertEquals(Snake.RIGHT, match.snake(0).heading());
+
+        // both presses land before the next tick
+        p1.offer(Snake.UP);
+        p1.offer(Snake.LEFT);
+        match.tick();
+        assertEquals(Snake.UP, match.snake(0).heading());
+        match.tick();
+        assertEquals(Snake.LEFT, match.snake(0).heading());
+        assertTrue(match.running[0]);
+        assertFalse(match.snake(0).collision());
+    }
+
+    @Test
+    void reversalIsDroppedWithoutCostingATick() {
+        GameEngine match = new GameEngine(50, 30, 3);
+        InputQueue p1 = match.input(0);
+        p1.offer(Snake.RIGHT);
+        match.tick();
+        p1.offer(Snake.LEFT);
+        p1.offer(Snake.DOWN);
+        match.tick();
+        assertEquals(Snake.DOWN, match.snake(0).heading());
+        assertEquals(3, p1.consumed());
+    }
+}
@@ -0,0 +1,153 @@
+package snakegame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MatchIndexTest {
+    private static final int PLAYERS = 40;
+
+    @TempDir
+    Path dir;
+
+    /** One side of an appended match, as the test remembers it. */
+    private static final class Side {
+        final long match, when;
+        final int side, player, score, playMillis;
+
+        Side(long match, int side, int player, int score, int playMillis, long when) {
+            this.match = match;
+            this.side = side;
+            this.player = player;
+            this.score = score;
+            this.playMillis = playMillis;
+            this.when = when;
+        }
+    }
+
+    // best first; equal scores keep the earlier result first
+    private static final Comparator<Side> BEST_FIRST =
+            Comparator.<Side>comparingInt(s -> -s.score).thenComparingLong(s -> s.match << 1 | s.side);
+
+    private static void append(MatchIndex index, List<Side> sides, Random rnd) throws IOException {
+        long when = 1_700_000_000_000L + sides.size() * 1000L;
+        int p1 = rnd.nextInt(PLAYERS), p2 = rnd.nextInt(PLAYERS);
+        // mostly small scores, now and then a big one that grows the rank tree
+        int s1 = rnd.nextInt(10) == 0 ? rnd.nextInt(5000) : rnd.nextInt(200), s2 = rnd.nextInt(200);
+        int play1 = rnd.nextInt(100_000), play2 = rnd.nextInt(100_000);
+        long match = index.append(when, p1, s1, play1, p2, s2, play2, GameEngine.RESULT_TIE);
+        assertEquals(sides.size() / 2, match);
+        sides.add(new Side(match, 0, p1, s1, play1, when));
+        sides.add(new Side(match, 1, p2, s2, play2, when));
+    }
+
+    private static void assertSame(Side expected, MatchIndex.Result actual) {
+        assertEquals(expected.match, actual.match);
+        assertEquals(expected.side, actual.side);
+        assertEquals(expected.player, actual.player);
+        assertEquals(expected.score, actual.score);
+        assertEquals(expected.playMillis, actual.playMillis);
+        assertEquals(expected.when, actual.when);
+    }
+
+    /** Every query agrees with a brute-force pass over what was appended. */
+    private static void assertMatches(List<Side> sides, MatchIndex index) {
+        assertEquals(sides.size() / 2, index.size());
+        assertEquals(sides.size(), index.results());
+
+        List<Side> sorted = new ArrayList<>(sides);
+        sorted.sort(BEST_FIRST);
+        for (int k : new int[] {0, 1, 10, MatchIndex.MAX_TOP, MatchIndex.MAX_TOP + 5}) {
+            List<MatchIndex.Result> top = index.top(k);
+            assertEquals(Math.min(k, Math.min(MatchIndex.MAX_TOP, sorted.size())), top.size(), "top " + k);
+            for (int i = 0; i < top.size(); i++) assertSame(sorted.get(i), top.get(i));
+        }
+
+        for (int score : new int[] {-1, 0, 1, 50, 199, 200, 4999, 5000, 1 << 20}) {
+            long above = sides.stream().filter(s -> s.score > score).count();
+            assertEquals(1 + above, index.rankOf(score), "score " + score);
+        }
+
+        for (int p = 0; p < PLAYERS; p++) {
+            int player = p;
+            Side best = sides.stream().filter(s -> s.player == player).min(BEST_FIRST).orElse(null);
+            if (best == null) assertNull(index.best(p));
+            else assertSame(best, index.best(p));
+        }
+        assertNull(index.best(PLAYERS));
+        assertNull(index.best(1 << 20));
+    }
+
+    @Test
+    void freshIndexIsEmpty() throws IOException {
+        try (MatchIndex index = MatchIndex.open(dir.resolve("matches.db"))) {
+            assertEquals(0, index.size());
+            assertEquals(0, index.top(10).size());
+            assertEquals(1, index.rankOf(0));
+            assertNull(index.best(0));
+        }
+    }
+
+    @Test
+    void queriesSurviveCloseAndReopen() throws IOException {
+        Path file = dir.resolve("matches.db");
+        Random rnd = new Random(14);
+        List<Side> sides = new ArrayList<>();
+        try (MatchIndex index = MatchIndex.open(file)) {
+            // more results than MAX_TOP, so the top list has to drop some
+            while (sides.size() < 2 * MatchIndex.MAX_TOP + 200) append(index, sides, rnd);
+            assertMatches(sides, index);
+        }
+        try (MatchIndex index = MatchIndex.open(file)) {
+            assertMatches(sides, index);
+            // appends after a reopen carry on the numbering and the indexes
+            for (int i = 0; i < 100; i++) append(index, sides, rnd);
+            assertMatches(sides, index);
+        }
+        try (MatchIndex index = MatchIndex.open(file)) {
+            assertMatches(sides, index);
+        }
+    }
+
+    @Test
+    void recordPastTheCountIsIgnoredAndOverwritten() throws IOException {
+        Path file = dir.resolve("matches.db");
+        Random rnd = new Random(3);
+        List<Side> sides = new ArrayList<>();
+        try (MatchIndex index = MatchIndex.open(file)) {
+            for (int i = 0; i < 5; i++) append(index, sides, rnd);
+        }
+        // a crash between forcing the last record and counting it
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, 4);
+            channel.write(count, 16);
+        }
+        sides.subList(8, 10).clear();
+        try (MatchIndex index = MatchIndex.open(file)) {
+            assertMatches(sides, index);
+            append(index, sides, rnd);
+            assertMatches(sides, index);
+        }
+    }
+
+    @Test
+    void rejectsAFileThatIsNotAnIndex() throws IOException {
+        Path file = dir.resolve("scores.log");
+        Files.writeString(file, "0123abcd H 0 40\n".repeat(4));
+        assertThrows(IOException.class, () -> MatchIndex.open(file));
+    }
+}
@@ -0,0 +1,135 @@
+package snakegame;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplayTest {
+    @TempDir
+    Path dir;
+
+    /** Plays a match with random turns, recording it; every player turns now and then, so every code is written. */
+    static GameEngine record(Path file, int cols, int rows, int players, boolean shared, long seed, int maxTicks) throws IOException {
+        GameEngine match = new GameEngine(cols, rows, players, shared, seed);
+        Random turns = new Random(seed);
+        int[] inputs = new int[players];
+        try (ReplayWriter writer = new ReplayWriter(file, match, seed)) {
+            match.recorder = writer;
+            while (!match.gameOver && match.ticks < maxTicks) {
+                for (int p = 0; p < players; p++) inputs[p] = turns.nextInt(4) == 0 ? turns.nextInt(4) : Snake.NONE;
+                match.step(inputs);
+            }
+        }
+        return match;
+    }
+
+    static void assertSameMatch(GameEngine expected, GameEngine actual) {
+        assertEquals(expected.ticks, actual.ticks);
+        assertEquals(expected.clock, actual.clock);
+        assertEquals(expected.alive, actual.alive);
+        assertEquals(expected.gameOver, actual.gameOver);
+        assertArrayEquals(expected.foods, actual.foods);
+        assertArrayEquals(expected.running, actual.running);
+        for (int p = 0; p < expected.players; p++) {
+            Snake e = expected.snake(p), a = actual.snake(p);
+            assertEquals(e.score, a.score, "P" + (p + 1) + " score");
+            assertEquals(e.length(), a.length(), "P" + (p + 1) + " length");
+            for (int i = 0; i < e.length(); i++) assertEquals(e.cell(i), a.cell(i), "P" + (p + 1) + " segment " + i);
+        }
+        assertArrayEquals(expected.grid.owner, actual.grid.owner);
+    }
+
+    @Test
+    void roundTripsEveryPlayerAtMaxPlayers() throws IOException {
+        Path file = dir.resolve("max.snr");
+        GameEngine played = record(file, 120, 60, GameEngine.MAX_PLAYERS, true, 11, 400);
+        Replay replay = Replay.read(file);
+        assertEquals(GameEngine.MAX_PLAYERS, replay.players);
+        boolean highPlayerTurned = false;
+        for (int i = 0; i < replay.size; i++) highPlayerTurned |= (replay.inputs[i] & 0xFF) >> 2 >= 32;
+        assertTrue(highPlayerTurned);
+
+        ReplayPlayer player = new ReplayPlayer(replay);
+        player.seek(played.ticks);
+        assertSameMatch(played, player.engine());
+    }
+
+    /** A two-bot match on a big banded board: long enough to cross several replay snapshots. */
+    private static GameEngine recordBots(Path file, long seed, List<long[]> applied) throws IOException {
+        GameEngine match = new GameEngine(80, 40, seed);
+        match.controllers[0] = new SurvivalBot();
+        match.controllers[1] = new GreedyBot();
+        try (ReplayWriter writer = new ReplayWriter(file, match, seed)) {
+            match.recorder = (tick, inputs) -> {
+                writer.record(tick, inputs);
+                for (int p = 0; p < inputs.length; p++) if (inputs[p] != Snake.NONE) applied.add(new long[] {tick, p, inputs[p]});
+            };
+            while (!match.gameOver && match.ticks < 5 * ReplayPlayer.SNAPSHOT_INTERVAL) match.tick();
+        }
+        return match;
+    }
+
+    @Test
+    void readsBackTheSetupAndEveryAppliedInput() throws IOException {
+        Path file = dir.resolve("bots.snr");
+        List<long[]> applied = new ArrayList<>();
+        recordBots(file, 5, applied);
+        Replay replay = Replay.read(file);
+        assertEquals(80, replay.cols);
+        assertEquals(40, replay.rows);
+        assertEquals(2, replay.players);
+        assertFalse(replay.shared);
+        assertEquals(5, replay.seed);
+        assertEquals(applied.size(), replay.size);
+        for (int i = 0; i < replay.size; i++) {
+            long[] a = applied.get(i);
+            assertEquals(a[0], replay.ticks[i]);
+            assertEquals(a[1], (replay.inputs[i] & 0xFF) >> 2);
+            assertEquals(a[2], replay.inputs[i] & 3);
+        }
+    }
+
+    @Test
+    void tornLastEntryIsDropped() throws IOException {
+        Path file = dir.resolve("torn.snr");
+        recordBots(file, 6, new ArrayList<>());
+        int entries = Replay.read(file).size;
+        byte[] bytes = Files.readAllBytes(file);
+        Path torn = dir.resolve("torn-cut.snr");
+        Files.write(torn, Arrays.copyOf(bytes, bytes.length - 1)); // the last entry loses its code byte
+        assertEquals(entries - 1, Replay.read(torn).size);
+    }
+
+    @Test
+    void seekingAnywhereMatchesAStraightReplay() throws IOException {
+        Path file = dir.resolve("seek.snr");
+        GameEngine played = recordBots(file, 7, new ArrayList<>());
+        assertTrue(played.ticks > 2 * ReplayPlayer.SNAPSHOT_INTERVAL, "match too short to cross snapshots: " + played.ticks);
+        Replay replay = Replay.read(file);
+
+        ReplayPlayer seeking = new ReplayPlayer(replay);
+        long[] targets = {played.ticks, 3, ReplayPlayer.SNAPSHOT_INTERVAL + 17, 2 * ReplayPlayer.SNAPSHOT_INTERVAL, 40,
+                played.ticks - 1, ReplayPlayer.SNAPSHOT_INTERVAL - 1};
+        for (long target : targets) {
+            seeking.seek(target);
+            ReplayPlayer straight = new ReplayPlayer(replay);
+            while (straight.engine().ticks < target && straight.step()) {
+                // replaying
+            }
+            assertSameMatch(straight.engine(), seeking.engine());
+        }
+        seeking.seek(played.ticks);
+        assertSameMatch(played, seeking.engine());
+    }
+}
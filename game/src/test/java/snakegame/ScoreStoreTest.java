@@ -0,0 +1,112 @@
+package snakegame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScoreStoreTest {
+    @TempDir
+    Path dir;
+
+    /** A log line as the writer would write it: the payload's CRC32, a space, the payload. */
+    private static String line(String payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue()) + " " + payload + "\n";
+    }
+
+    private static void assertSameEntries(List<ScoreStore.Entry> expected, List<ScoreStore.Entry> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            ScoreStore.Entry e = expected.get(i), a = actual.get(i);
+            assertEquals(e.when, a.when, "entry " + i);
+            assertEquals(e.score, a.score, "entry " + i);
+            assertEquals(e.playMillis, a.playMillis, "entry " + i);
+            assertEquals(e.outcome, a.outcome, "entry " + i);
+        }
+    }
+
+    private static void assertSameState(ScoreStore expected, ScoreStore actual) {
+        for (int p = 0; p < ScoreStore.PLAYERS; p++) {
+            assertEquals(expected.highScore(p), actual.highScore(p), "player " + p);
+            assertSameEntries(expected.leaderboard(p), actual.leaderboard(p));
+            assertSameEntries(expected.history(p), actual.history(p));
+        }
+    }
+
+    @Test
+    void tornAndCorruptLinesAreSkippedAndTheLogIsRewritten() throws IOException {
+        Path file = dir.resolve("scores.log");
+        String flipped = line("H 1 99").replace("H 1 99", "H 1 98"); // checksum no longer matches
+        String torn = line("M 0 3000 90 4000 W");
+        Files.writeString(file, line("H 0 40") + line("M 0 1000 40 5000 W") + flipped
+                + line("M 1 2000 7 3000 L") + line("H 1 7") + torn.substring(0, torn.length() / 2));
+
+        try (ScoreStore store = ScoreStore.open(file, null)) {
+            assertEquals(2, store.corruptLines());
+            assertEquals(40, store.highScore(0));
+            assertEquals(7, store.highScore(1));
+            assertEquals(1, store.leaderboard(0).size());
+            assertEquals(40, store.leaderboard(0).get(0).score);
+            assertEquals(1, store.history(1).size());
+            assertEquals('L', store.history(1).get(0).outcome);
+        }
+        // the writer rewrote the log on startup, so the torn tail is gone
+        try (ScoreStore reopened = ScoreStore.open(file, null)) {
+            assertEquals(0, reopened.corruptLines());
+            assertEquals(40, reopened.highScore(0));
+            assertEquals(7, reopened.highScore(1));
+            assertEquals(1, reopened.leaderboard(0).size());
+            assertEquals(1, reopened.history(1).size());
+        }
+        assertTrue(Files.readString(file).endsWith("\n"));
+        assertFalse(Files.exists(dir.resolve("scores.log.tmp")));
+    }
+
+    @Test
+    void longLogIsCompactedThroughTheTempFile() throws IOException, InterruptedException {
+        Path file = dir.resolve("scores.log");
+        Path tmp = dir.resolve("scores.log.tmp");
+        StringBuilder log = new StringBuilder();
+        int lines = 0;
+        for (int i = 0; lines < 4100; i++, lines++) {
+            int p = i % ScoreStore.PLAYERS;
+            log.append(line("M " + p + " " + (1000 + i) + " " + (i * 37 % 500) + " " + (i * 10) + " " + (i % 3 == 0 ? 'W' : 'L')));
+            if (i % 100 == 99) {
+                log.append(line("H " + p + " " + (i * 37 % 500)));
+                lines++;
+            }
+        }
+        Files.writeString(file, log);
+        Files.writeString(tmp, "left over from a crash mid-compaction\n");
+
+        ScoreStore store = ScoreStore.open(file, null);
+        try (store) {
+            assertEquals(0, store.corruptLines());
+            assertTrue(store.offerScore(0, 1000));
+            store.recordMatch(1, 12, 3000, 'T');
+            store.flush();
+            assertEquals(12, store.history(1).get(0).score);
+
+            // the snapshot replaced the log: one line per kept entry plus the high scores
+            long kept = Files.readAllLines(file).size();
+            long bound = ScoreStore.PLAYERS * (ScoreStore.HISTORY_SIZE + ScoreStore.LEADERBOARD_SIZE + 1);
+            assertTrue(kept <= bound, kept + " lines after compaction");
+            assertFalse(Files.exists(tmp));
+        }
+        try (ScoreStore reopened = ScoreStore.open(file, null)) {
+            assertEquals(0, reopened.corruptLines());
+            assertEquals(1000, reopened.highScore(0));
+            assertSameState(store, reopened);
+        }
+    }
+}
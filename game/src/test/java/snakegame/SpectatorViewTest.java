@@ -0,0 +1,172 @@
+package snakegame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SpectatorViewTest {
+    private static final int COLS = 120, ROWS = 60, PLAYERS = GameEngine.MAX_PLAYERS;
+    // the feed's ring for this board is its 1 MB minimum; play well past it so frames wrap
+    private static final long RING = 1 << 20;
+    private static final int CHECK_EVERY = 50;
+
+    /** Decodes whatever the feed hands it into a view, or takes nothing while stalled. */
+    private static final class ViewSink implements SpectatorFeed.Sink {
+        final SpectatorView view = new SpectatorView();
+        private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+        long bytes;
+        volatile boolean stalled;
+
+        @Override
+        public synchronized void write(ByteBuffer buf) {
+            if (stalled) return;
+            bytes += buf.remaining();
+            if (pending.remaining() < buf.remaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + buf.remaining()));
+                pending = bigger.put(pending.flip());
+            }
+            pending.put(buf).flip();
+            while (pending.hasRemaining()) {
+                int start = pending.position(), length;
+                try {
+                    length = (int) Varint.read(pending);
+                } catch (BufferUnderflowException e) {
+                    pending.position(start);
+                    break;
+                }
+                if (pending.remaining() < length) {
+                    pending.position(start);
+                    break;
+                }
+                ByteBuffer frame = pending.slice(pending.position(), length);
+                pending.position(pending.position() + length);
+                view.apply(frame);
+            }
+            pending.compact();
+            notifyAll();
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    private static GameEngine newMatch(SpectatorFeed feed, long seed) {
+        GameEngine match = new GameEngine(COLS, ROWS, PLAYERS, true, seed);
+        match.spectators = feed;
+        feed.publish(match);
+        return match;
+    }
+
+    private static boolean shows(GameEngine m, SpectatorView v) {
+        if (!v.inStep || v.tick != m.ticks || v.players != m.players || v.cols != m.cols || v.rows != m.rows) return false;
+        for (int p = 0; p < m.players; p++) {
+            Snake s = m.snake(p);
+            if (v.running[p] != m.running[p] || v.scores[p] != s.score || v.foods[p] != m.food(p) || v.length(p) != s.length()) return false;
+            for (int i = 0; i < s.length(); i++) if (v.cell(p, i) != s.cell(i)) return false;
+        }
+        return true;
+    }
+
+    private static void assertShows(GameEngine m, SpectatorView v) {
+        assertTrue(v.inStep, "view out of step");
+        assertEquals(m.ticks, v.tick);
+        assertEquals(m.cols, v.cols);
+        assertEquals(m.rows, v.rows);
+        assertEquals(m.players, v.players);
+        assertEquals(m.shared, v.shared);
+        for (int p = 0; p < m.players; p++) {
+            Snake s = m.snake(p);
+            assertEquals(m.running[p], v.running[p], "P" + (p + 1) + " running");
+            assertEquals(s.score, v.scores[p], "P" + (p + 1) + " score");
+            assertEquals(m.food(p), v.foods[p], "P" + (p + 1) + " food");
+            assertEquals(s.length(), v.length(p), "P" + (p + 1) + " length");
+            for (int i = 0; i < s.length(); i++) assertEquals(s.cell(i), v.cell(p, i), "P" + (p + 1) + " segment " + i);
+        }
+    }
+
+    /** Waits for the dispatcher to bring the sink's view up to the match, then checks every field. */
+    private static void awaitShows(GameEngine m, ViewSink sink) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000, left;
+        synchronized (sink) {
+            while (!shows(m, sink.view) && (left = deadline - System.currentTimeMillis()) > 0) sink.wait(left);
+            assertShows(m, sink.view);
+        }
+    }
+
+    private static void awaitSubscribers(SpectatorFeed feed, int n) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (feed.subscribers() < n && System.nanoTime() < deadline) Thread.sleep(1);
+        assertEquals(n, feed.subscribers());
+    }
+
+    /** Random turns for every player; with 64 of them matches are short, so new-match keyframes come often too. */
+    private static final class Play {
+        final SpectatorFeed feed;
+        final Random turns;
+        final int[] inputs = new int[PLAYERS];
+        GameEngine match;
+        long seed;
+
+        Play(SpectatorFeed feed, long seed) {
+            this.feed = feed;
+            this.seed = seed;
+            turns = new Random(seed);
+            match = newMatch(feed, seed);
+        }
+
+        /** Plays until the sink has taken the given bytes, checking the views against the match as it goes. */
+        void until(ViewSink counter, long bytes, ViewSink... checked) throws InterruptedException {
+            for (long t = 1; counter.bytes < bytes; t++) {
+                for (int p = 0; p < PLAYERS; p++) inputs[p] = turns.nextInt(16) == 0 ? turns.nextInt(4) : Snake.NONE;
+                match.step(inputs);
+                if (t % CHECK_EVERY == 0 || match.gameOver) {
+                    for (ViewSink s : checked) awaitShows(match, s);
+                }
+                if (match.gameOver) match = newMatch(feed, ++seed);
+            }
+        }
+    }
+
+    @Test
+    void viewFollowsTheMatchAcrossRingLaps() throws InterruptedException {
+        try (SpectatorFeed feed = new SpectatorFeed(COLS, ROWS, PLAYERS)) {
+            ViewSink sink = new ViewSink();
+            feed.subscribe(sink);
+            awaitSubscribers(feed, 1);
+
+            Play play = new Play(feed, 19);
+            play.until(sink, 2 * RING, sink);
+            awaitShows(play.match, sink);
+            assertEquals(0, feed.resyncs());
+            assertEquals(0, feed.dropped());
+        }
+    }
+
+    @Test
+    void lappedViewResyncsFromTheLatestKeyframe() throws InterruptedException {
+        try (SpectatorFeed feed = new SpectatorFeed(COLS, ROWS, PLAYERS)) {
+            ViewSink steady = new ViewSink(), lagging = new ViewSink();
+            feed.subscribe(steady);
+            feed.subscribe(lagging);
+            awaitSubscribers(feed, 2);
+
+            Play play = new Play(feed, 23);
+            play.until(steady, RING / 4, steady, lagging);
+
+            // stop reading for long enough that the ring laps the lagging view once, but not often enough to drop it
+            lagging.stalled = true;
+            play.until(steady, steady.bytes + RING + RING / 2, steady);
+            assertEquals(1, feed.resyncs());
+
+            lagging.stalled = false;
+            play.until(steady, steady.bytes + RING / 4, steady, lagging);
+            awaitShows(play.match, lagging);
+            assertEquals(0, feed.dropped());
+            assertEquals(2, feed.subscribers());
+        }
+    }
+}
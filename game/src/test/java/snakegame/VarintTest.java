@@ -0,0 +1,59 @@
+package snakegame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class VarintTest {
+    private static final long[] VALUES = {0, 1, 127, 128, 300, 16_383, 16_384, Integer.MAX_VALUE, 1L << 56, Long.MAX_VALUE, -1};
+
+    private static int expectedSize(long v) {
+        return v == 0 ? 1 : (64 - Long.numberOfLeadingZeros(v) + 6) / 7;
+    }
+
+    @Test
+    void streamRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (long v : VALUES) {
+            int before = out.size();
+            Varint.write(out, v);
+            assertEquals(expectedSize(v), out.size() - before, "size of " + v);
+        }
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        for (long v : VALUES) assertEquals(v, Varint.read(in));
+        assertThrows(EOFException.class, () -> Varint.read(in));
+    }
+
+    @Test
+    void bufferRoundTripMatchesTheStreamBytes() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer buf = ByteBuffer.allocate(128);
+        for (long v : VALUES) {
+            Varint.write(out, v);
+            Varint.write(buf, v);
+        }
+        buf.flip();
+        assertEquals(ByteBuffer.wrap(out.toByteArray()), buf);
+        for (long v : VALUES) assertEquals(v, Varint.read(buf));
+    }
+
+    @Test
+    void truncatedOrOverlongInputIsRejected() {
+        byte[] cut = {(byte) 0x80, (byte) 0x80};
+        assertThrows(EOFException.class, () -> Varint.read(new ByteArrayInputStream(cut)));
+        assertThrows(BufferUnderflowException.class, () -> Varint.read(ByteBuffer.wrap(cut)));
+
+        byte[] overlong = new byte[11];
+        Arrays.fill(overlong, (byte) 0x80);
+        assertThrows(IOException.class, () -> Varint.read(new ByteArrayInputStream(overlong)));
+        assertThrows(IllegalArgumentException.class, () -> Varint.read(ByteBuffer.wrap(overlong)));
+    }
+}